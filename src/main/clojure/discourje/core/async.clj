@@ -6,9 +6,12 @@
             [discourje.core.async.monitors :as monitors]
             [discourje.core.spec.lts :as lts]))
 
-(defn monitor [spec & {:keys [on-the-fly history]
-                       :or   {on-the-fly true, history false}}]
-  (monitors/monitor (lts/lts spec :on-the-fly on-the-fly :history history)))
+(defn monitor [spec & {:keys [on-the-fly history minimize capacity]
+                       :or   {on-the-fly true, history false, minimize false, capacity nil}}]
+  (monitors/monitor (if minimize
+                      (lts/minimize (lts/lts spec :history history))
+                      (lts/lts spec :on-the-fly on-the-fly :history history))
+                    :capacity (when (and on-the-fly (not minimize)) capacity)))
 
 (defn link
   ([channel sender receiver monitor]
@@ -1,14 +1,18 @@
 (ns discourje.core.async.monitors
   (:require [discourje.core.spec.lts :as lts]))
 
-(deftype Monitor [lts current-states flag])
+(deftype Monitor [lts current-states flag capacity])
 
 (defn monitor
-  [lts]
+  "Returns a monitor of lts. If a capacity is given, then states of lts are
+  evicted (least recently visited first) whenever lts has more states than
+  that (see lts/evict!); lts must then be monitored by this monitor only."
+  [lts & {:keys [capacity] :or {capacity nil}}]
   {:pre [(lts/lts? lts)]}
   (->Monitor lts
-             (atom (lts/initial-states lts))
-             (atom false)))
+             (atom (lts/state-set lts (lts/initial-states lts)))
+             (atom false)
+             capacity))
 
 (defn monitor?
   [x]
@@ -50,23 +54,35 @@
   {:pre [(or (monitor? monitor) (nil? monitor))]}
   (if (nil? monitor)
     true
-    (loop []
-      (let [source-states @(.-current_states monitor)
-            target-states (lts/expand-then-perform! source-states
-                                                    type
-                                                    message
-                                                    sender
-                                                    receiver)]
+    (let [lts (.-lts monitor)
+          ;; A step and the publication of its target states are not interleaved with eviction, so the current
+          ;; states are live when eviction computes the live states
+          step (fn []
+                 (let [source-states @(.-current_states monitor)
+                       target-states (lts/expand-then-perform! source-states
+                                                               type
+                                                               message
+                                                               sender
+                                                               receiver)]
 
-        (if (compare-and-set! (.-flag monitor) false true)
-          (if (compare-and-set! (.-current_states monitor) source-states target-states)
-            (if (empty? target-states)
-              (runtime-exception (.-lts monitor) source-states type message sender receiver)
-              true)
-            (do
-              (reset! (.-flag monitor) false)
-              (recur)))
-          (recur))))))
+                   (if (compare-and-set! (.-flag monitor) false true)
+                     (if (compare-and-set! (.-current_states monitor) source-states target-states)
+                       (if (empty? target-states)
+                         (runtime-exception lts source-states type message sender receiver)
+                         true)
+                       (do
+                         (reset! (.-flag monitor) false)
+                         ::retry))
+                     ::retry)))
+          result (loop []
+                   (let [result (lts/without-eviction lts step)]
+                     (if (= result ::retry)
+                       (recur)
+                       result)))]
+      (when (true? result)
+        (when-let [capacity (.-capacity monitor)]
+          (lts/evict! lts capacity (fn [] [@(.-current_states monitor)]))))
+      result)))
 
 (defn lower-flag!
   [monitor]
@@ -288,13 +288,15 @@
                                  :or   {engine *engine* witness *witness*}}]
   (:f (check-all ast-or-lts {:f f} :engine engine :witness witness)))
 
-(defn lint [ast-or-lts & {:keys [engine witness include exclude]
-                          :or   {engine  *engine*
-                                 witness *witness*
-                                 include *include*
-                                 exclude *exclude*}}]
+(defn lint [ast-or-lts & {:keys [engine witness include exclude minimize]
+                          :or   {engine   *engine*
+                                 witness  *witness*
+                                 include  *include*
+                                 exclude  *exclude*
+                                 minimize false}}]
   (if (= (type ast-or-lts) LTS)
-    (let [channels (lts/channels ast-or-lts)
+    (let [ast-or-lts (if minimize (lts/minimize ast-or-lts) ast-or-lts)
+          channels (lts/channels ast-or-lts)
           fmap {:must-terminate     (must-terminate)
                 :may-terminate      (may-terminate)
                 :cant-terminate     (cant-terminate)
@@ -308,4 +310,5 @@
           :engine engine
           :witness witness
           :include include
-          :exclude exclude)))
\ No newline at end of file
+          :exclude exclude
+          :minimize minimize)))
\ No newline at end of file
@@ -1,50 +1,163 @@
 (ns discourje.core.spec.interp
   (:refer-clojure :exclude [eval])
-  (:require [clojure.walk :as w]
+  (:require [clojure.set]
+            [clojure.walk :as w]
             [discourje.core.spec.ast :as ast]))
 
 (def ^:dynamic *hist* nil)
 
+(def ^:dynamic *reduction* nil)
+
+;;;;
+;;;; Caches
+;;;;
+
+(def ^:private cache-capacity 65536)
+
+(defn- cache []
+  (java.util.concurrent.ConcurrentHashMap.))
+
+(defn- lookup
+  "Returns the value of k in cache, computing it with f (of no arguments) if
+  absent. Caches are concurrent, so threads that expand states in parallel
+  share them without contention, and bounded: a full cache is cleared, at the
+  cost of recomputing values."
+  [^java.util.concurrent.ConcurrentHashMap cache k f]
+  (if-some [v (.get cache k)]
+    v
+    (let [v (f)]
+      (when (>= (.size cache) cache-capacity)
+        (.clear cache))
+      (.putIfAbsent cache k v)
+      v)))
+
+(defn library-ns?
+  "Returns true if the namespace named ns-name is a library namespace
+  (clojure.*, discourje.core.spec*), whose vars are assumed not to be
+  redefined."
+  [ns-name]
+  (let [s (str ns-name)]
+    (or (.startsWith s "clojure.")
+        (= s "discourje.core.spec")
+        (.startsWith s "discourje.core.spec."))))
+
+(defonce ^:private vars-cache (cache))
+
+(defn- vars
+  "Returns the vars of non-library namespaces to which the symbols in x
+  resolve in the current namespace."
+  [x]
+  (lookup vars-cache [(ns-name *ns*) x]
+          (fn []
+            (into []
+                  (comp (filter symbol?)
+                        (keep #(let [v (try (ns-resolve *ns* %) (catch Exception _ nil))]
+                                 (when (and (var? v) (not (library-ns? (ns-name (.ns ^clojure.lang.Var v)))))
+                                   v)))
+                        (distinct))
+                  (tree-seq coll? seq x)))))
+
+(defn- var-values
+  "Returns the values of the vars in x (see vars). Caches of values computed
+  from x include them in their keys, so redefining such a var is picked up."
+  [x]
+  (mapv deref (vars x)))
+
+;;;;
+;;;; Compilation of expressions
+;;;;
+
+(defonce ^:private compiled-exprs (cache))
+
+(declare compile-expr)
+
+(defn- compile-form
+  "Compiles expr with the Clojure compiler into a function of no arguments."
+  [expr]
+  (clojure.core/eval (list 'fn [] (w/postwalk-replace {'&hist 'discourje.core.spec.interp/*hist*} expr))))
+
+(defn- compile-call
+  "Compiles a call of a function held by a var (not a macro), or returns nil."
+  [expr]
+  (let [[op & args] expr
+        v (when (and (symbol? op) (not (special-symbol? op))) (resolve op))]
+    (when (and (var? v) (not (:macro (meta v))) (ifn? @v))
+      (let [fs (mapv compile-expr args)]
+        (case (count fs)
+          0 (fn [] (@v))
+          1 (let [[f1] fs] (fn [] (@v (f1))))
+          2 (let [[f1 f2] fs] (fn [] (@v (f1) (f2))))
+          (fn [] (apply @v (map #(%) fs))))))))
+
+(defn compile-expr
+  "Returns a function of no arguments that evaluates expr. Literals, vars,
+  vectors and calls of functions held by vars are compiled into closures
+  directly; other forms (e.g., fn-forms and macro calls) are compiled by the
+  Clojure compiler. Compiled expressions are cached, so the Clojure compiler
+  runs at most once per distinct expression."
+  [expr]
+  (lookup compiled-exprs [(ns-name *ns*) expr]
+          (fn []
+            (cond
+               (or (nil? expr) (boolean? expr) (number? expr) (string? expr) (keyword? expr) (char? expr))
+               (constantly expr)
+
+               (= expr '&hist)
+               (fn [] *hist*)
+
+               (symbol? expr)
+               (let [v (resolve expr)]
+                 (cond (var? v) (fn [] @v)
+                       (class? v) (constantly v)
+                       :else (compile-form expr)))
+
+               (vector? expr)
+               (let [fs (mapv compile-expr expr)]
+                 (fn [] (mapv #(%) fs)))
+
+               (seq? expr)
+               (or (compile-call expr) (compile-form expr))
+
+               :else
+               (compile-form expr)))))
+
 (defn eval [expr]
-  (clojure.core/eval (if *hist*
-                       (w/postwalk-replace {'&hist 'discourje.core.spec.interp/*hist*} expr)
-                       expr)))
+  ((compile-expr expr)))
 
-(defonce ^:private eval-predicate-cache (atom (hash-map)))
-;(reset! eval-predicate-cache (hash-map))
-;(println (count @eval-predicate-cache))
+(defonce ^:private eval-predicate-cache (cache))
 
 (defn eval-predicate [predicate]
   {:pre [(ast/predicate? predicate)]}
-  (if-let [f (get @eval-predicate-cache predicate)]
-    f
-    (let [x (eval (:expr predicate))
-          f (cond
-              (fn? x) x
-              (class? x) #(instance? x %)
-              :else (fn [message] (= message x)))
-          ;_ (if (and (not (fn? x)) (not (class? x)))
-          ;    (swap! eval-predicate-cache #(assoc % predicate f)))
-          ]
-      (swap! eval-predicate-cache #(assoc % predicate f))
-      f)))
+  (lookup eval-predicate-cache [(ns-name *ns*) predicate (var-values predicate)]
+          #(let [x (eval (:expr predicate))]
+             (cond
+               (fn? x) x
+               (class? x) (fn [message] (instance? x message))
+               :else (fn [message] (= message x))))))
+
+(defonce ^:private eval-role-cache (cache))
+
+(defn- eval-role* [role]
+  (str (cond
+         (string? (:name-expr role)) (:name-expr role)
+         (keyword? (:name-expr role)) (ast/get-role-name (:name-expr role))
+         :else (throw (Exception. (str (type (:name-expr role))))))
+       (if (empty? (:index-exprs role))
+         ""
+         (mapv #(let [index (eval %)]
+                  (if (number? index)
+                    index
+                    (throw (Exception.))))
+               (:index-exprs role)))))
 
 (defn eval-role [role]
   {:pre [(or (ast/role? role) (fn? role) (keyword? role))]}
   (let [role (cond (ast/role? role) role
                    (fn? role) (role)
                    (keyword? role) (ast/role role))]
-    (str (cond
-           (string? (:name-expr role)) (:name-expr role)
-           (keyword? (:name-expr role)) (ast/get-role-name (:name-expr role))
-           :else (throw (Exception. (str (type (:name-expr role))))))
-         (if (empty? (:index-exprs role))
-           ""
-           (mapv #(let [index (eval %)]
-                    (if (number? index)
-                      index
-                      (throw (Exception.))))
-                 (:index-exprs role))))))
+    (if (some? *hist*)
+      (eval-role* role)
+      (lookup eval-role-cache [(ns-name *ns*) @ast/role-names role (var-values role)] #(eval-role* role)))))
 
 (defrecord Action [name type predicate sender receiver])
 
@@ -59,23 +172,33 @@
 (defn permute [branches]
   (mapv (partial ast/cat) (permutations branches)))
 
+(defonce ^:private action-cache (cache))
+
+(declare action)
+
+(defn- action* [ast-action]
+  (let [type (:type ast-action)
+        predicate (eval-predicate (:predicate ast-action))
+        sender (eval-role (:sender ast-action))
+        receiver (eval-role (:receiver ast-action))
+        name (str (case (:type ast-action)
+                    :sync "‽"
+                    :send "!"
+                    :receive "?"
+                    :close "C"
+                    (throw (Exception.))) "("
+                  (if (contains? #{:sync :send} (:type ast-action)) (str (:expr (:predicate ast-action)) ",") "")
+                  sender ","
+                  receiver ")")]
+    (action name type predicate sender receiver)))
+
 (defn action
   ([ast-action]
    {:pre [(ast/action? ast-action)]}
-   (let [type (:type ast-action)
-         predicate (eval-predicate (:predicate ast-action))
-         sender (eval-role (:sender ast-action))
-         receiver (eval-role (:receiver ast-action))
-         name (str (case (:type ast-action)
-                     :sync "‽"
-                     :send "!"
-                     :receive "?"
-                     :close "C"
-                     (throw (Exception.))) "("
-                   (if (contains? #{:sync :send} (:type ast-action)) (str (:expr (:predicate ast-action)) ",") "")
-                   sender ","
-                   receiver ")")]
-     (action name type predicate sender receiver)))
+   (if (some? *hist*)
+     (action* ast-action)
+     (lookup action-cache [(ns-name *ns*) @ast/role-names ast-action (var-values ast-action)]
+             #(action* ast-action))))
 
   ([name type predicate sender receiver]
    {:pre [(string? name)
@@ -85,7 +208,32 @@
           (string? receiver)]}
    (->Action name type predicate sender receiver)))
 
-(defn substitute [ast smap]
+(declare ^:private substitute*)
+
+(defonce ^:private symbols-cache (cache))
+
+(defn- symbols
+  "Returns the set of symbols that occur in ast (memoized)."
+  [ast]
+  (lookup symbols-cache ast #(into #{} (filter symbol?) (tree-seq coll? seq ast))))
+
+(defn substitute
+  "Returns ast with the symbols in smap replaced by their values, in one pass:
+  smap is restricted, at every node, to the symbols that occur in the subtree,
+  so subtrees in which none occurs are returned as is, without being walked."
+  [ast smap]
+  (let [occurring (symbols ast)
+        smap (reduce-kv (fn [m k _]
+                          (if (and (symbol? k) (not (contains? occurring k)))
+                            (dissoc m k)
+                            m))
+                        smap
+                        smap)]
+    (if (empty? smap)
+      ast
+      (substitute* ast smap))))
+
+(defn- substitute* [ast smap]
   (case (:type ast)
 
     ;; Actions
@@ -309,7 +457,11 @@
 
     (throw (Exception.))))
 
-(defn terminated? [ast unfolded]
+(defonce ^:private terminated-cache (cache))
+
+(declare terminated?)
+
+(defn- terminated?* [ast unfolded]
   (case (:type ast)
 
     ;; Actions
@@ -344,6 +496,136 @@
 
     (throw (Exception.))))
 
+(defn terminated? [ast unfolded]
+  (if (or (ast/action? ast) (= (:type ast) :end) (some? *hist*))
+    (terminated?* ast unfolded)
+    (lookup terminated-cache [(ns-name *ns*) ast unfolded (var-values ast)] #(terminated?* ast unfolded))))
+
+;;;;
+;;;; Partial-order reduction
+;;;;
+
+(defn- role-symbols
+  "Returns the symbols that the roles of ast can depend on (ignoring recur-nodes
+  of loop loop-name)."
+  [ast loop-name]
+  (let [syms #(set (filter symbol? (tree-seq coll? seq %)))]
+    (case (:type ast)
+      (:sync :send :receive :close) (into (syms (:sender ast)) (syms (:receiver ast)))
+      :end #{}
+      (:cat :alt :par) (reduce into #{} (map #(role-symbols % loop-name) (:branches ast)))
+      :every (into (syms (:exprs ast)) (remove (set (:vars ast)) (role-symbols (:branch ast) loop-name)))
+      :if (into (syms (:test-expr ast)) (into (role-symbols (:then ast) loop-name)
+                                              (role-symbols (:else ast) loop-name)))
+      :loop (into (syms (:exprs ast)) (remove (set (:vars ast)) (role-symbols (:body ast) loop-name)))
+      :recur (if (= (:name ast) loop-name) #{} (syms (:exprs ast)))
+      :graph (syms (:edges ast))
+      :session (syms (:exprs ast))
+      (throw (Exception.)))))
+
+(declare footprint)
+
+(defn- footprint*
+  "Returns {:roles roles, :finite finite}, where roles is the set of roles that
+  ast can ever act as (over-approximated), and finite is false if ast can loop,
+  or nil if the roles cannot be determined. Loops and sessions are unfolded
+  once; a loop (session) that recurs is assumed to act as the same roles in
+  every iteration (call) if its roles do not depend on its variables, and
+  cannot be determined otherwise."
+  [ast seen]
+  (let [union (fn [asts]
+                (reduce (fn [acc ast]
+                          (if-let [fp (footprint ast seen)]
+                            {:roles (into (:roles acc) (:roles fp)), :finite (and (:finite acc) (:finite fp))}
+                            (reduced nil)))
+                        {:roles #{}, :finite true}
+                        asts))]
+    (case (:type ast)
+      (:sync :send :receive :close) {:roles  #{(eval-role (:sender ast)) (eval-role (:receiver ast))}
+                                     :finite true}
+      :end {:roles #{}, :finite true}
+      (:cat :alt :par) (union (:branches ast))
+      :every (footprint (eval-ast ast) seen)
+      :if (footprint (eval-ast ast) seen)
+      :loop (let [k [:loop (:name ast)]]
+              (if (contains? seen k)
+                (when (empty? (clojure.set/intersection (set (:vars ast)) (role-symbols (:body ast) (:name ast))))
+                  {:roles #{}, :finite false})
+                (some-> (footprint (eval-ast ast) (conj seen k))
+                        (assoc :finite false))))
+      :recur nil
+      :graph (some-> (union (keys (apply merge (vals (:edges ast)))))
+                     (assoc :finite false))
+      :session (let [k [:session (:name ast)]]
+                 (if (contains? seen k)
+                   (let [{:keys [vars body]} (ast/get-ast (:name ast) (count (:exprs ast)))]
+                     (when (empty? (clojure.set/intersection (set vars) (role-symbols body nil)))
+                       {:roles #{}, :finite false}))
+                   (some-> (footprint (eval-ast ast) (conj seen k))
+                           (assoc :finite false))))
+      (throw (Exception.)))))
+
+(defonce ^:private footprint-cache (cache))
+
+(defn- footprint
+  ([ast]
+   (footprint ast #{}))
+  ([ast seen]
+   (if (some? *hist*)
+     (footprint* ast seen)
+     ;; Undetermined footprints are nil, which a ConcurrentHashMap cannot hold
+     (let [fp (lookup footprint-cache [(ns-name *ns*) @ast/role-names ast seen (var-values ast)]
+                      #(or (footprint* ast seen) ::undetermined))]
+       (when-not (= fp ::undetermined)
+         fp)))))
+
+(defn- ample
+  "Returns the index of an enabled branch of a par-node whose actions can be
+  explored in isolation, or nil. Such a branch cannot terminate yet, cannot
+  loop, and acts as none of the roles that the other branches can act as. As
+  the selected branch cannot loop, its actions are never postponed forever."
+  [enabled disabled unfolded]
+  (let [footprints (mapv footprint enabled)]
+    (loop [i 0]
+      (when (< i (count enabled))
+        (let [fp (nth footprints i)]
+          (if (and (some? fp)
+                   (:finite fp)
+                   (not (terminated? (nth enabled i) unfolded))
+                   (every? (fn [other]
+                             (when-let [fp' (if (number? other) (nth footprints other) (footprint other))]
+                               (empty? (clojure.set/intersection (:roles fp) (:roles fp')))))
+                           (concat (remove #(= i %) (range (count enabled))) disabled)))
+            i
+            (recur (inc i))))))))
+
+(def ^:dynamic *successors*
+  "A java.util.concurrent.ConcurrentHashMap in which the successors of the
+  branches of multiary nodes are memoized, or nil (no memoization)."
+  nil)
+
+(declare successors)
+
+(defn- memo-successors
+  "Returns the successors of ast, memoized in *successors* (except with
+  history, on which successors may depend). Memoization pays off when only
+  some branches of a par-node move: the others are looked up, not recomputed."
+  [ast unfolded]
+  (let [^java.util.concurrent.ConcurrentHashMap cache *successors*]
+    (if (or (nil? cache) (some? *hist*))
+      (successors ast unfolded)
+      (let [k [ast unfolded]]
+        (or (.get cache k)
+            ;; Successors of an alt-node without branches are nil, which a ConcurrentHashMap cannot hold
+            (let [m (or (successors ast unfolded) {})]
+              (or (.putIfAbsent cache k m) m)))))))
+
+(defn- update-successors
+  "Returns the successors of (f branches), given the successors m of the i-th
+  branch, by replacing that branch in the (persistent) vector of branches."
+  [f branches i m]
+  (zipmap (keys m) (mapv #(mapv (fn [ith'] (f (assoc branches i ith'))) %) (vals m))))
+
 (defn successors
   ([ast]
    (successors ast #{}))
@@ -377,16 +659,22 @@
                               {})))))
      :alt (let [branches (:branches ast)]
             (reduce (partial merge-with into) (map #(successors % unfolded) branches)))
-     :par (let [branches (:branches ast)
-                branches' (filterv #(not (empty? (successors % unfolded))) branches)]
+     :par (let [branches (vec (:branches ast))
+                ms (mapv #(memo-successors % unfolded) branches)
+                enabled (filterv #(seq (nth ms %)) (range (count branches)))
+                branches' (mapv branches enabled)
+                ms' (mapv ms enabled)]
             (case (count branches')
               0 {}
-              1 (successors (first branches') unfolded)
-              (loop [i 0
-                     m {}]
-                (if (= i (count branches'))
-                  m
-                  (recur (inc i) (merge-with into m (successors (ast/par branches') i unfolded)))))))
+              1 (first ms')
+              (if-let [i (when (= *reduction* :por)
+                           (ample branches' (into [] (keep-indexed #(when (empty? (nth ms %1)) %2)) branches) unfolded))]
+                (update-successors ast/par branches' i (nth ms' i))
+                (loop [i 0
+                       m {}]
+                  (if (= i (count branches'))
+                    m
+                    (recur (inc i) (merge-with into m (update-successors ast/par branches' i (nth ms' i)))))))))
 
      ;; Erik's partial-order reduction
      ;:par (let [branches (:branches ast)]
@@ -436,27 +724,324 @@
 
      (throw (Exception.))))
   ([ast-multiary i unfolded]
-   (let [branches (:branches ast-multiary)
+   (let [branches (vec (:branches ast-multiary))
          f (case (:type ast-multiary)
              :cat ast/cat
              :alt ast/alt
              :par ast/par
-             (throw (Exception.)))
-         ith (nth branches i)
-         ith-before (subvec branches 0 i)
-         ith-after (subvec branches (inc i) (count branches))
-         m (successors ith unfolded)]
-     (zipmap (keys m) (mapv #(mapv (fn [ith'] (f (reduce into [ith-before [ith'] ith-after]))) %) (vals m))))))
+             (throw (Exception.)))]
+     (update-successors f branches i (memo-successors (nth branches i) unfolded)))))
+
+(defn history-abstraction
+  "Returns a function that abstracts a history (a vector of AST actions),
+  given the :history option of an LTS: true keeps the full history, a number
+  n keeps the last n actions, and a function is used as-is. Specs whose
+  predicates depend only on the abstracted history then have finitely many
+  states, even when they loop."
+  [history]
+  (cond
+    (true? history) identity
+    (number? history) (fn [hist]
+                        (if (> (count hist) history)
+                          ;; Copy, as a subvec would retain the full history
+                          (into [] (subvec hist (- (count hist) history)))
+                          hist))
+    (fn? history) history
+    :else (throw (IllegalArgumentException. (str history)))))
 
 (defn successors-with-hist
-  [ast hist]
-  (binding [*hist* hist]
-    (loop [successors (successors ast #{})
-           successors-with-hist {}]
-      (if (empty? successors)
-        successors-with-hist
-        (let [[ast-action asts] (first successors)]
-          (recur (rest successors)
-                 (assoc successors-with-hist
-                   ast-action
-                   (mapv (fn [ast] [ast (conj hist ast-action)]) asts))))))))
\ No newline at end of file
+  ([ast hist]
+   (successors-with-hist ast hist identity))
+  ([ast hist abstract]
+   (binding [*hist* hist]
+     (loop [successors (successors ast #{})
+            successors-with-hist {}]
+       (if (empty? successors)
+         successors-with-hist
+         (let [[ast-action asts] (first successors)
+               hist' (abstract (conj hist ast-action))]
+           (recur (rest successors)
+                  (assoc successors-with-hist
+                    ast-action
+                    (mapv (fn [ast] [ast hist']) asts)))))))))
+
+;;;;
+;;;; Hash-consing
+;;;;
+
+(def ^:dynamic *interned*
+  "A java.util.concurrent.ConcurrentHashMap in which hash-cons interns AST
+  nodes, or nil (no hash-consing)."
+  nil)
+
+(defn hash-cons
+  "Returns an AST equal to ast in which equal subtrees are one instance,
+  interned in *interned*. As records cache their hashes, and as equality of
+  records first checks identity, hashing and comparing interned ASTs is
+  mostly a matter of reference checks. Subtrees that are already interned are
+  not traversed."
+  [ast]
+  (let [^java.util.concurrent.ConcurrentHashMap interned *interned*]
+    (if (or (nil? interned) (not (record? ast)))
+      ast
+      (let [existing (.get interned ast)]
+        (if (some? existing)
+          existing
+          (let [ast' (case (:type ast)
+                       (:cat :alt :par) (let [branches (:branches ast)
+                                              branches' (mapv hash-cons branches)]
+                                          (if (every? true? (map identical? branches branches'))
+                                            ast
+                                            (assoc ast :branches branches')))
+                       :every (update ast :branch hash-cons)
+                       :if (-> ast (update :then hash-cons) (update :else hash-cons))
+                       :loop (update ast :body hash-cons)
+                       ast)]
+            (or (.putIfAbsent interned ast' ast') ast')))))))
+
+;;;;
+;;;; Fingerprints
+;;;;
+
+(declare fingerprint*)
+
+(defn- fingerprint-leaf
+  "Returns the MurmurHash3 of a canonical encoding of x: a tag of its kind,
+  followed by its value (with lengths of strings). Values that are equal but
+  of different kinds (e.g., 1 and 1N) may have different fingerprints."
+  ^discourje.core.lts.Fingerprint [x]
+  (let [h (discourje.core.lts.Fingerprint$Hasher.)]
+    (cond
+      (nil? x) (.putByte h 0)
+      (boolean? x) (-> h (.putByte 1) (.putByte (if x 1 0)))
+      (or (instance? Long x) (instance? Integer x) (instance? Short x) (instance? Byte x))
+      (-> h (.putByte 2) (.putLong (long x)))
+      (or (instance? Double x) (instance? Float x))
+      (-> h (.putByte 3) (.putLong (Double/doubleToLongBits (double x))))
+      (string? x) (-> h (.putByte 4) (.putString ^String x))
+      (keyword? x) (-> h (.putByte 5) (.putString (str (.sym ^clojure.lang.Keyword x))))
+      (symbol? x) (-> h (.putByte 6) (.putString (str x)))
+      (char? x) (-> h (.putByte 7) (.putInt (int (.charValue ^Character x))))
+      (class? x) (-> h (.putByte 8) (.putString (.getName ^Class x)))
+      :else (-> h (.putByte 9) (.putString (.getName (class x))) (.putString (pr-str x))))
+    (.hash h)))
+
+(defn- fingerprint-unordered
+  "Puts the sum of the fingerprints of xs into h, so the order of xs does not
+  matter."
+  [^discourje.core.lts.Fingerprint$Hasher h xs f]
+  (let [sums (long-array 2)]
+    (doseq [x xs]
+      (let [^discourje.core.lts.Fingerprint g (f x)]
+        (aset sums 0 (unchecked-add (aget sums 0) (.getHigh g)))
+        (aset sums 1 (unchecked-add (aget sums 1) (.getLow g)))))
+    (-> h (.putLong (aget sums 0)) (.putLong (aget sums 1)))))
+
+(defn- fingerprint-coll ^discourje.core.lts.Fingerprint [cache x]
+  (let [h (discourje.core.lts.Fingerprint$Hasher.)
+        put (fn [^discourje.core.lts.Fingerprint$Hasher h y]
+              (.putFingerprint h (fingerprint* cache y)))]
+    (cond
+      (record? x) (do (-> h (.putByte 16) (.putString (.getName (class x))) (.putInt (count x)))
+                      (reduce-kv (fn [h k v] (-> h (put k) (put v))) h x))
+      (map? x) (-> h
+                   (.putByte 17)
+                   (.putInt (count x))
+                   (fingerprint-unordered x (fn [[k v]]
+                                              (let [g (discourje.core.lts.Fingerprint$Hasher.)]
+                                                (-> g (put k) (put v))
+                                                (.hash g)))))
+      (set? x) (-> h (.putByte 18) (.putInt (count x)) (fingerprint-unordered x #(fingerprint* cache %)))
+      (sequential? x) (do (-> h (.putByte 19) (.putInt (count x)))
+                          (reduce put h x))
+      :else (do (.putByte h 20)
+                (reduce put h x)))
+    (.hash h)))
+
+(defn- fingerprint*
+  "Returns the fingerprint of x, looking up (and caching) the fingerprints of
+  collections in cache, unless it is nil."
+  ^discourje.core.lts.Fingerprint [^objects cache x]
+  (if (coll? x)
+    (if (nil? cache)
+      (fingerprint-coll cache x)
+      (let [i (bit-and (System/identityHashCode x) (dec (alength cache)))
+            e (aget cache i)]
+        (if (and (some? e) (identical? (nth e 0) x))
+          (nth e 1)
+          (let [g (fingerprint-coll cache x)]
+            (aset cache i [x g])
+            g))))
+    (fingerprint-leaf x)))
+
+(defn fingerprint
+  "Returns a 128-bit fingerprint of x (e.g., the AST of a state, or a pair of
+  an AST and a history), computed from its structure: the MurmurHash3 of a
+  canonical encoding of x, in which collections are encoded by the
+  fingerprints of their elements."
+  ^discourje.core.lts.Fingerprint [x]
+  (fingerprint* nil x))
+
+(defn fingerprinter
+  "Returns a function that returns fingerprints (see fingerprint), with its own
+  direct-mapped cache, by identity, of the fingerprints of recently seen
+  collections. As successive states share most of their subtrees,
+  fingerprinting a state mostly hits this cache. The cache is dropped with the
+  function (e.g., with the LTS that uses it)."
+  []
+  (let [cache (object-array 65536)]
+    (fn [x] (fingerprint* cache x))))
+
+;;;;
+;;;; Symmetry reduction
+;;;;
+
+(defn symmetric-roles
+  "Returns groups (sets) of role names whose indices are interchangeable in
+  ast: every occurrence of such a role is indexed by exactly the variable of a
+  par-every or alt-every over (range n), for the same n within a group, and
+  these variables are used for nothing else. Loops and sessions are unfolded
+  once; if that fails (e.g., because their arguments depend on variables of
+  every-nodes), no groups are returned."
+  [ast]
+  (let [occurrences (volatile! [])
+        bindings (volatile! {})
+        walk-role (fn [role env]
+                    (cond
+                      (ast/role? role) (vswap! occurrences conj {:name    (:name-expr role)
+                                                                 :indices (:index-exprs role)
+                                                                 :binding (get env (first (:index-exprs role)))})
+                      :else (throw (Exception.))))
+        walk (fn walk [ast env seen]
+               (case (:type ast)
+                 (:sync :send :receive :close) (do (walk-role (:sender ast) env)
+                                                   (walk-role (:receiver ast) env))
+                 :end nil
+                 (:cat :alt :par) (run! #(walk % env seen) (:branches ast))
+                 :every (let [[var & vars] (:vars ast)
+                              range (when (and (empty? vars)
+                                               (contains? #{ast/par ast/alt} (:ast-f ast))
+                                               (not-any? (set (keys env))
+                                                         (filter symbol? (tree-seq coll? seq (:exprs ast)))))
+                                      (let [r (vec (eval (first (:exprs ast))))]
+                                        (when (= r (vec (clojure.core/range (count r))))
+                                          (count r))))
+                              id (gensym)]
+                          (when range
+                            (vswap! bindings assoc id {:var var, :range range, :branch (:branch ast)}))
+                          (walk (:branch ast) (into env (map (fn [var] [var (when range id)]) (:vars ast))) seen))
+                 :if (do (walk (:then ast) env seen)
+                         (walk (:else ast) env seen))
+                 :loop (when-not (contains? seen [:loop (:name ast)])
+                         (walk (eval-ast ast) env (conj seen [:loop (:name ast)])))
+                 :recur nil
+                 :graph (run! #(walk % env seen) (mapcat keys (vals (:edges ast))))
+                 :session (when-not (contains? seen [:session (:name ast)])
+                            (walk (eval-ast ast) env (conj seen [:session (:name ast)])))
+                 (throw (Exception.))))]
+    (if (try (walk ast {} #{}) true (catch Exception _ false))
+      (let [occurrences @occurrences
+            bindings @bindings
+            range-of (fn [occurrence]
+                       (when (and (= 1 (count (:indices occurrence)))
+                                  (symbol? (first (:indices occurrence))))
+                         (:range (get bindings (:binding occurrence)))))]
+        (loop [families (set (map :name occurrences))]
+          (let [;; Every occurrence is indexed by a symmetric variable, with the same range
+                families (set (filter (fn [name]
+                                        (let [ranges (map range-of (filter #(= name (:name %)) occurrences))]
+                                          (and (every? some? ranges) (apply = ranges))))
+                                      families))
+                ;; Every use of a symmetric variable is an index of a family
+                uses (frequencies (map :binding (filter #(contains? families (:name %)) occurrences)))
+                families' (set (remove (fn [name]
+                                         (some (fn [{:keys [binding]}]
+                                                 (let [{:keys [var branch]} (get bindings binding)]
+                                                   (not= (get uses binding)
+                                                         (count (filter #(= var %) (tree-seq coll? seq branch))))))
+                                               (filter #(= name (:name %)) occurrences)))
+                                       families))]
+            (if (= families families')
+              (set (map set (vals (group-by #(range-of (first (filter (fn [o] (= % (:name o))) occurrences)))
+                                            families))))
+              (recur families')))))
+      #{})))
+
+(defn- fingerprint-key
+  "Returns a comparable key of the fingerprint of x."
+  [fingerprint x]
+  (let [^discourje.core.lts.Fingerprint g (fingerprint x)]
+    [(.getHigh g) (.getLow g)]))
+
+(defn- sort-branches
+  "Sorts the branches of the par-nodes and alt-nodes in ast (which does not
+  change their meaning) by their fingerprints. Branches are sorted bottom-up,
+  and the key of every branch is computed once."
+  [ast]
+  (let [fingerprint (fingerprinter)]
+    (w/postwalk #(if (and (instance? discourje.core.spec.ast.Multiary %)
+                          (contains? #{:par :alt} (:type %)))
+                   (assoc % :branches (->> (:branches %)
+                                           (mapv (fn [branch] [(fingerprint-key fingerprint branch) branch]))
+                                           (sort-by first compare)
+                                           (mapv second)))
+                   %)
+                ast)))
+
+(defn canonicalize
+  "Returns a canonical representative of ast under permutations of the indices
+  (which range from 0) of the roles in each group. Indices are ranked by the
+  shape of ast as seen from each of them: a fingerprint of ast in which that
+  index is :self, the other indices are :other, and the branches of par-nodes
+  and alt-nodes are unordered. The i-th ranked index becomes i, so states whose
+  indices differ only by indices that no longer occur (e.g., of finished
+  branches) get the same representative. Equally ranked indices keep their
+  order, so states in the same orbit may still have different representatives
+  (which is sound, but reduces less). The branches of the representative are
+  sorted once."
+  [ast groups]
+  (let [renamed (reduce
+                  (fn [ast group]
+                    (let [indices (volatile! #{})
+                          ok (volatile! true)
+                          _ (w/postwalk #(do (when (and (ast/role? %) (contains? group (:name-expr %)))
+                                               (let [[index & more] (:index-exprs %)]
+                                                 (cond
+                                                   (and (number? index) (empty? more)) (vswap! indices conj index)
+                                                   (and (symbol? index) (empty? more)) nil
+                                                   :else (vreset! ok false))))
+                                             %)
+                                        ast)
+                          indices @indices
+                          rename (fn [ast smap]
+                                   (w/postwalk #(if (and (ast/role? %)
+                                                         (contains? group (:name-expr %))
+                                                         (contains? smap (first (:index-exprs %))))
+                                                  (assoc % :index-exprs [(get smap (first (:index-exprs %)))])
+                                                  %)
+                                               ast))
+                          unordered (fn [ast]
+                                      (w/postwalk #(if (and (instance? discourje.core.spec.ast.Multiary %)
+                                                            (contains? #{:par :alt} (:type %)))
+                                                     (assoc % :branches (frequencies (:branches %)))
+                                                     %)
+                                                  ast))]
+                      (if (or (not @ok) (< (count indices) 2))
+                        ast
+                        (let [fingerprint (fingerprinter)
+                              shape (fn [index]
+                                      (fingerprint-key fingerprint
+                                                       (unordered (rename ast (zipmap indices
+                                                                                      (map #(if (= % index) :self :other)
+                                                                                           indices))))))
+                              ranked (->> indices
+                                          (map (fn [index] [(shape index) index]))
+                                          (sort compare)
+                                          (map second))
+                              smap (zipmap ranked (range (count indices)))]
+                          (rename ast smap)))))
+                  ast
+                  groups)]
+    (if (identical? renamed ast)
+      ast
+      (sort-branches renamed))))
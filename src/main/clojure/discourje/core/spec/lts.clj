@@ -1,9 +1,18 @@
 (ns discourje.core.spec.lts
   (:require [clojure.set :refer [union]]
             [clojure.java.shell :refer [sh]]
+            [clojure.walk :as w]
+            [discourje.core.spec.ast :as ast]
             [discourje.core.spec.interp :as interp])
-  (:import (java.util.function Function Predicate)
-           (discourje.core.lts Action Action$Type State States LTS LTSs)))
+  (:import (java.io File IOException Writer)
+           (java.nio.channels WritableByteChannel)
+           (java.nio.charset StandardCharsets)
+           (java.security MessageDigest)
+           (java.util Collections Map WeakHashMap)
+           (java.util.concurrent ConcurrentHashMap ForkJoinPool)
+           (java.util.function Function Predicate Supplier)
+           (discourje.core.lts Action Action$Type Aldebaran Exploration Exploration$Listener Exploration$Order Exploration$Outcome
+                               FrozenLTS State States StateSet LTS LTSs)))
 
 ;;;;
 ;;;; Actions
@@ -30,12 +39,191 @@
 ;;;; States
 ;;;;
 
+(defn state-set [lts states]
+  (.getStateSet ^LTS lts states))
+
+(def ^:private expander-caches
+  "Map, weakly by LTS, to the caches of its expander (the tables in which ASTs
+  are hash-consed and successors are memoized)."
+  (Collections/synchronizedMap (WeakHashMap.)))
+
+(defn- expander-cache-size [lts]
+  (reduce + (map #(.size ^ConcurrentHashMap %) (.get ^Map expander-caches lts))))
+
+(defn evict!
+  "Evicts states of lts, if it has more than capacity states, except those in
+  the live state sets (returned by live, a function of no arguments, which is
+  called once no states are expanded) and those most recently visited (see
+  LTS.evict). The caches of its expander are then cleared too, so they do not
+  retain the ASTs of evicted states."
+  [lts capacity live]
+  (when (.evict ^LTS lts capacity (reify Supplier (get [_] (live))))
+    (doseq [^ConcurrentHashMap cache (.get ^Map expander-caches lts)]
+      (.clear cache))))
+
+(defn without-eviction
+  "Calls f (of no arguments) while no states of lts are evicted, and returns
+  its value (see LTS.withoutEviction)."
+  [lts f]
+  (.withoutEviction ^LTS lts (reify Supplier (get [_] (f)))))
+
 (defn expand-then-perform! [source-states type message sender receiver]
-  (States/expandThenPerform source-states
-                            (action-type-keyword-to-enum type)
-                            message
-                            sender
-                            receiver))
+  (if (instance? StateSet source-states)
+    (.expandThenPerform ^StateSet source-states
+                        (action-type-keyword-to-enum type)
+                        message
+                        sender
+                        receiver)
+    (States/expandThenPerform source-states
+                              (action-type-keyword-to-enum type)
+                              message
+                              sender
+                              receiver)))
+
+;;;;
+;;;; Explorations
+;;;;
+
+(def ^:dynamic *exploration* nil)
+
+(defn exploration [& {:keys [order budget progress interval]
+                      :or   {order :bfs, budget Integer/MAX_VALUE, progress nil, interval 1000}}]
+  (Exploration. (case order
+                  :bfs Exploration$Order/BREADTH_FIRST
+                  :dfs Exploration$Order/DEPTH_FIRST
+                  (throw (Exception.)))
+                budget
+                (if progress
+                  (reify Exploration$Listener
+                    (progress [_ states expanded frontier states-per-second]
+                      (progress {:states            states
+                                 :expanded          expanded
+                                 :frontier          frontier
+                                 :states-per-second states-per-second}))))
+                interval))
+
+(defn cancel! [exploration]
+  (.cancel ^Exploration exploration))
+
+(defn expand! [lts exploration]
+  (let [outcome (.expand ^LTS lts ^Exploration exploration)]
+    (condp = outcome
+      Exploration$Outcome/COMPLETED lts
+      Exploration$Outcome/BUDGET_EXHAUSTED (throw (ex-info (str "[EXPLORATION FAILURE] Budget of "
+                                                                (.getBudget ^Exploration exploration)
+                                                                " states exhausted")
+                                                           {:outcome :budget-exhausted}))
+      Exploration$Outcome/CANCELLED (throw (ex-info "[EXPLORATION FAILURE] Cancelled"
+                                                    {:outcome :cancelled})))))
+
+;;;;
+;;;; Cache
+;;;;
+
+(def ^:dynamic *cache* nil)
+
+(defn- printable
+  "Returns the printed form of x if it reads back as x, or nil."
+  [x]
+  (let [s (binding [*print-length* nil, *print-level* nil, *print-meta* false]
+            (pr-str x))]
+    (when (try (= x (read-string s)) (catch Exception _ false))
+      s)))
+
+(defn- sessions
+  "Returns the names of the sessions that ast refers to, directly or through
+  the definitions of other sessions."
+  [ast]
+  (let [refs (fn [x]
+               (let [names (volatile! #{})]
+                 (w/postwalk #(do (when (and (map? %) (= (:type %) :session)) (vswap! names conj (:name %))) %) x)
+                 @names))]
+    (loop [todo (refs ast)
+           done #{}]
+      (if (empty? todo)
+        done
+        (let [k (first todo)
+              done (conj done k)]
+          (recur (into (disj todo k) (remove done (refs (get @ast/asts k))))
+                 done))))))
+
+(defn- cache-form
+  "Returns x with every function and symbol replaced by a reproducible form
+  that identifies it, or nil if there is none: a function must be the value of
+  a var of a library namespace (clojure.*, discourje.core.spec*), which is then
+  identified by name; a symbol that resolves to such a var, or to a class, is
+  identified by its qualified name; a symbol that resolves to another var is
+  identified by its name and the printed form of its value (if that reads
+  back). Other symbols (e.g., locals) are left as is."
+  [x]
+  (let [uncacheable (volatile! false)
+        fail (fn [] (vreset! uncacheable true) nil)
+        var-symbol (fn [^clojure.lang.Var v] (symbol (str (ns-name (.ns v))) (str (.sym v))))
+        x (w/postwalk
+            (fn [y]
+              (cond
+                (fn? y)
+                (let [sym (symbol (clojure.lang.Compiler/demunge (.getName (class y))))
+                      v (when (namespace sym) (resolve sym))]
+                  (if (and (var? v) (identical? y @v) (interp/library-ns? (ns-name (.ns ^clojure.lang.Var v))))
+                    (list 'fn (var-symbol v))
+                    (fail)))
+
+                (symbol? y)
+                (let [v (try (ns-resolve *ns* y) (catch Exception _ nil))]
+                  (cond
+                    (class? v) (symbol (.getName ^Class v))
+                    (not (var? v)) y
+                    (interp/library-ns? (ns-name (.ns ^clojure.lang.Var v))) (var-symbol v)
+                    :else (if-let [s (printable @v)]
+                            (list 'var (var-symbol v) s)
+                            (fail))))
+
+                :else y))
+            x)]
+    (when-not @uncacheable
+      x)))
+
+(defn- cache-key
+  "Returns a hash of ast, the definitions of the sessions it refers to, the
+  role names, the reduction, the symmetry, and the current namespace (in which
+  predicates are evaluated), or nil if they cannot be printed reproducibly (see
+  cache-form)."
+  [ast reduction symmetry]
+  (when-let [x (cache-form [(ns-name *ns*)
+                            ast
+                            reduction
+                            (into (sorted-set) (map #(into (sorted-set) %) symmetry))
+                            (into (sorted-map) (map (fn [k] [k (into (sorted-map) (get @ast/asts k))])
+                                                    (sessions ast)))
+                            (into (sorted-map) @ast/role-names)])]
+    (let [s (binding [*print-length* nil, *print-level* nil, *print-meta* false]
+              (pr-str x))]
+      (when-not (.contains ^String s "#object")
+        (let [digest (.digest (MessageDigest/getInstance "SHA-256") (.getBytes ^String s StandardCharsets/UTF_8))]
+          (apply str (map #(format "%02x" %) digest)))))))
+
+(defn- read-cached [^File file]
+  (try
+    (let [predicates (reify Function
+                       (apply [_ k]
+                         (let [p (interp/eval-predicate (ast/predicate (read-string k)))]
+                           (reify Predicate (test [_ message] (p message))))))
+          lts (.thaw (FrozenLTS/read (.toPath file) predicates))]
+      (.expandRecursively lts)
+      lts)
+    (catch IOException _ nil)))
+
+(defn- write-cached [^LTS lts ^File file exprs]
+  (when-let [keys (reduce (fn [m ^Action a]
+                            (if-let [s (printable (get exprs (.getName a)))]
+                              (assoc m (.getName a) s)
+                              (reduced nil)))
+                          {} (.getActions lts))]
+    (try
+      (.mkdirs (.getParentFile (.getAbsoluteFile file)))
+      (.write (.freeze lts) (.toPath file) (reify Function (apply [_ a] (get keys (.getName ^Action a)))))
+      (catch IOException _ nil))))
 
 ;;;;
 ;;;; LTSs
@@ -44,26 +232,132 @@
 (defn lts? [x]
   (= (type x) LTS))
 
-(defn lts [ast & {:keys [on-the-fly history]
-                  :or   {on-the-fly false, history false}}]
-  (let [initial (if history [ast []] ast)
-        expander (if history
-                   (reify
-                     Function
-                     (apply [_ [ast hist]]
-                       (let [successors (interp/successors-with-hist ast hist)]
-                         (zipmap (map #(action (interp/action %)) (keys successors))
-                                 (vals successors)))))
-                   (reify
-                     Function
-                     (apply [_ ast]
-                       (let [successors (interp/successors ast)]
-                         (zipmap (map #(action (interp/action %)) (keys successors))
-                                 (map #(mapv (fn [ast] (interp/simplify ast)) %) (vals successors)))))))
-        lts (LTS. #{initial} expander)]
-    (if (not on-the-fly)
-      (.expandRecursively lts))
-    lts))
+(defn lts
+  "Returns the LTS of ast. If a cache directory is given (:cache, or *cache*),
+  and the LTS is not built with history, then the LTS is read from the cache
+  when present there, and written to the cache when built in full.
+
+  States are expanded in parallel, on the common pool by default, or on the
+  ForkJoinPool given as :parallel (false expands them sequentially). After a
+  parallel expansion, states are renumbered in breadth-first order, so their
+  ids do not depend on the order in which workers reach them (see
+  LTS.expandRecursively).
+
+  With :history, every state pairs an AST with the history of actions that
+  predicates can refer to as &hist: true keeps the full history (so states of
+  loops never recur), a number n keeps the last n actions, and a function
+  abstracts the history vector (see interp/history-abstraction). Histories
+  are interned per LTS.
+
+  With :reduction :por, the branches of par-nodes are not interleaved when one
+  of them acts as roles that the others never act as (partial-order reduction).
+  The reduced LTS preserves deadlocks and termination, and properties that do
+  not depend on the order of actions of disjoint roles, but it is generally
+  not bisimilar to the full LTS.
+
+  With :symmetry, states are identified up to permutations of the indices of
+  interchangeable roles: :auto detects them (see interp/symmetric-roles), and
+  a set of role names (or a collection of such sets) declares them. Such an LTS
+  suits linting, but not monitoring, as its actions are those of the
+  representatives. Symmetry is ignored with history.
+
+  With :memoize false, ASTs are not hash-consed, and their successors are not
+  memoized (see interp/hash-cons and interp/successors). The LTS is the same,
+  but slower to build.
+
+  With :fingerprint true, states are identified by 128-bit fingerprints of
+  their ASTs (see interp/fingerprint), and states drop their ASTs once they
+  are expanded, so only the ASTs of the frontier are retained (ASTs are not
+  hash-consed then). Such an LTS cannot be minimized.
+
+  With :spill (a directory), states are fingerprinted as above, and their
+  transitions are spilled to a memory-mapped file in that directory, so only
+  a compact index of states stays on the heap (see SpillingStateStore).
+  Transitions are spilled as soon as states are expanded. The file is deleted
+  when the LTS is closed (e.g., by with-open), or else when it becomes
+  unreachable, or else when the JVM exits."
+  [ast & {:keys [on-the-fly history parallel exploration cache reduction symmetry memoize fingerprint spill]
+          :or   {on-the-fly false, history false, parallel true, exploration *exploration*, cache *cache*,
+                 reduction nil, symmetry nil, memoize true, fingerprint false, spill nil}}]
+  (let [fingerprint (or fingerprint (some? spill))
+        groups (cond
+                 (or (nil? symmetry) history) #{}
+                 (= symmetry :auto) (interp/symmetric-roles ast)
+                 (every? keyword? symmetry) #{(set symmetry)}
+                 :else (set (map set symmetry)))
+        file (when (and cache (not history))
+               (when-let [k (cache-key ast reduction groups)]
+                 (File. (str cache) (str k ".lts"))))]
+    (or (when (and file (.exists ^File file))
+          (read-cached file))
+        (let [interned (when (and memoize (not fingerprint)) (ConcurrentHashMap.))
+              ;; Successors are not memoized with fingerprints, as the memo would retain the ASTs that they drop
+              successors (when (and memoize (not fingerprint)) (ConcurrentHashMap.))
+              initial (binding [interp/*interned* interned]
+                        (if history
+                          [(interp/hash-cons ast) []]
+                          (interp/hash-cons (interp/canonicalize ast groups))))
+              exprs (ConcurrentHashMap.)
+              to-action (if file
+                          (fn [ast-action]
+                            (let [a (action (interp/action ast-action))]
+                              (.putIfAbsent exprs (.getName ^Action a) (:expr (:predicate ast-action)))
+                              a))
+                          (fn [ast-action]
+                            (action (interp/action ast-action))))
+              ;; Convey the bindings of the calling thread (e.g., *ns* for eval) to the threads that expand states
+              f (binding [interp/*reduction* reduction
+                          interp/*interned* interned
+                          interp/*successors* successors]
+                  (bound-fn* (if history
+                               (let [abstract (interp/history-abstraction history)
+                                     intern (if interned
+                                              (fn [hist] (or (.putIfAbsent interned hist hist) hist))
+                                              identity)]
+                                 (fn [[ast hist]]
+                                   (let [successors (interp/successors-with-hist ast hist abstract)]
+                                     (zipmap (map to-action (keys successors))
+                                             (map #(mapv (fn [[ast hist]] [(interp/hash-cons ast) (intern hist)]) %)
+                                                  (vals successors))))))
+                               (fn [ast]
+                                 (let [successors (interp/successors ast)]
+                                   (zipmap (map to-action (keys successors))
+                                           (map #(mapv (fn [ast] (interp/hash-cons (interp/canonicalize (interp/simplify ast) groups))) %)
+                                                (vals successors))))))))
+              expander (reify
+                         Function
+                         (apply [_ x] (f x)))
+              lts (LTS. #{initial}
+                        expander
+                        (when fingerprint
+                          (let [fingerprint (interp/fingerprinter)]
+                            (reify
+                              Function
+                              (apply [_ x] (fingerprint x)))))
+                        (when spill
+                          (let [file (File/createTempFile "lts" ".states" (File. (str spill)))]
+                            (.deleteOnExit file)
+                            (.toPath file))))]
+          (.put ^Map expander-caches lts (remove nil? [interned successors]))
+          (when (not on-the-fly)
+            (cond
+              (some? exploration) (expand! lts exploration)
+              (instance? ForkJoinPool parallel) (.expandRecursively lts ^ForkJoinPool parallel)
+              parallel (.expandRecursively lts (ForkJoinPool/commonPool))
+              :else (.expandRecursively lts))
+            (when file
+              (write-cached lts file exprs)))
+          lts))))
+
+(defn minimize
+  "Returns the quotient of lts under strong bisimulation."
+  [lts & {:keys [parallel] :or {parallel false}}]
+  (.getLTS (LTSs/minimize lts (cond (instance? ForkJoinPool parallel) parallel
+                                    parallel (ForkJoinPool/commonPool)
+                                    :else nil))))
+
+(defn freeze [lts]
+  (.freeze ^LTS lts))
 
 (defn initial-states [lts]
   (.getInitialStates lts))
@@ -86,8 +380,27 @@
                                     (.getActions (.getTransitionsOrNull s)))))
                      (.getStates lts)))))
 
-(defn bisimilar? [lts1 lts2]
-  (LTSs/bisimilar lts1 lts2))
+(defn bisimilar?
+  ([lts1 lts2]
+   (LTSs/bisimilar lts1 lts2))
+  ([lts1 lts2 & {:keys [parallel] :or {parallel false}}]
+   (LTSs/bisimilar lts1 lts2 (cond (instance? ForkJoinPool parallel) parallel
+                                   parallel (ForkJoinPool/commonPool)
+                                   :else nil))))
 
 (defn not-bisimilar? [lts1 lts2]
-  (not (bisimilar? lts1 lts2)))
\ No newline at end of file
+  (not (bisimilar? lts1 lts2)))
+
+(defn write-aldebaran
+  "Streams lts in Aldebaran format to out (a Writer or WritableByteChannel). If
+  given, label is applied to the name of every action."
+  [lts out & {:keys [label] :or {label identity}}]
+  (let [f (reify Function (apply [_ a] (label (.getName ^Action a))))]
+    (if (instance? WritableByteChannel out)
+      (Aldebaran/write ^LTS lts ^WritableByteChannel out ^Function f)
+      (Aldebaran/write ^LTS lts ^Writer out ^Function f))))
+
+(defn read-aldebaran
+  "Reads an LTS in Aldebaran format from a (memory-mapped) file."
+  [file]
+  (Aldebaran/read (.toPath (File. (str file)))))
@@ -1,6 +1,7 @@
 (ns discourje.core.spec.mcrl2
   (:require [clojure.string :refer [join]]
             [clojure.java.shell :refer [sh]]
+            [clojure.java.io :as io]
             [clojure.pprint :refer [pprint]]
             [discourje.core.spec.lts :as lts])
   (:import (java.io File)))
@@ -16,7 +17,8 @@
 (defn ltsgraph [lts]
   (future
     (let [aut-file (str *mcrl2-tmp* File/separator "ltsgraph-" (System/currentTimeMillis) ".aut")]
-      (spit aut-file (str lts))
+      (with-open [w (io/writer aut-file)]
+        (lts/write-aldebaran lts w))
       (sh (mcrl2 :ltsgraph) aut-file))))
 
 (defn lts2pbes-pbes2bool [lts formulas]
@@ -27,15 +29,15 @@
           mcf-file (str *mcrl2-tmp* File/separator "lts2pbes-pbes2bool-" timestamp ".mcf")
           pbes-file (str *mcrl2-tmp* File/separator "lts2pbes-pbes2bool-" timestamp ".pbes")]
 
-      (let [lts-string (str lts)
-            lts-string (clojure.string/replace lts-string #"(‽|!)\([a-zA-Z]*," "$1(")
-            lts-string (clojure.string/replace lts-string "[" "(")
-            lts-string (clojure.string/replace lts-string "]" ")")
-            lts-string (clojure.string/replace lts-string "‽" "handshake")
-            lts-string (clojure.string/replace lts-string "!" "send")
-            lts-string (clojure.string/replace lts-string "?" "receive")
-            lts-string (clojure.string/replace lts-string "C" "close")]
-        (spit aut-file lts-string))
+      (with-open [w (io/writer aut-file)]
+        (lts/write-aldebaran lts w :label #(-> %
+                                               (clojure.string/replace #"(‽|!)\([a-zA-Z]*," "$1(")
+                                               (clojure.string/replace "[" "(")
+                                               (clojure.string/replace "]" ")")
+                                               (clojure.string/replace "‽" "handshake")
+                                               (clojure.string/replace "!" "send")
+                                               (clojure.string/replace "?" "receive")
+                                               (clojure.string/replace "C" "close"))))
 
       (let [mcrl2-string (join "\n" [(str "sort Role = struct "
                                           (join " | " (distinct (map #(if-let [[_ name _] (re-matches #"(.+)\[([0-9]+)\]" %)]
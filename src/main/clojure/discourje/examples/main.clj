@@ -1,6 +1,7 @@
 (ns discourje.examples.main
   (:gen-class)
   (:require [discourje.core.lint :as l]
+            [discourje.core.spec.lts :as lts]
             [discourje.core.spec.mcrl2 :as mcrl2]
             [discourje.examples.config :as config]))
 
@@ -13,7 +14,12 @@
             l/*witness* (if (some? (:witness settings)) (:witness settings) l/*witness*)
             l/*exclude* (if (some? (:exclude settings)) (:exclude settings) l/*exclude*)
             mcrl2/*mcrl2-bin* (:mcrl2-bin settings)
-            mcrl2/*mcrl2-tmp* (:mcrl2-tmp settings)]
+            mcrl2/*mcrl2-tmp* (:mcrl2-tmp settings)
+            lts/*exploration* (if (or (some? (:budget settings)) (:progress settings))
+                                (lts/exploration :budget (or (:budget settings) Integer/MAX_VALUE)
+                                                 :progress (if (:progress settings)
+                                                             (fn [progress] (binding [*out* *err*] (prn progress))))))
+            lts/*cache* (:cache settings)]
 
     (when (some? (:timeout settings))
       (.start (Thread. ^Runnable (fn []
@@ -1,8 +1,10 @@
 package discourje.core.ctl;
 
 import discourje.core.lts.Action;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public interface Formula {
 
@@ -14,6 +16,14 @@ public interface Formula {
 
     Labels label(Model<?> model);
 
+    /**
+     * Returns the formulas whose labels {@link #label(Model)} calculates through the model, so they can be labelled
+     * first (see {@link Model#calculateLabels(Collection, ForkJoinPool)}).
+     */
+    default List<Formula> getSubformulas() {
+        return Collections.emptyList();
+    }
+
     default List<List<Action>> extractWitness(Model<?> model) {
         for (var s : model.getInitialStates()) {
             if (!model.hasLabel(s, this)) {
@@ -1,25 +1,71 @@
 package discourje.core.ctl;
 
-import java.util.BitSet;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.Collection;
 
+/**
+ * Set of labelled states, as a bit per state index. Labels are set by one thread with {@link #setLabel(int)}, or by
+ * several threads with {@link #setLabelAtomically(int)}, which requires the capacity to be given on construction.
+ */
 public class Labels {
-    private final BitSet labels;
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private long[] words;
 
     public Labels() {
-        this.labels = new BitSet();
+        this(0);
+    }
+
+    public Labels(int capacity) {
+        this.words = new long[(capacity + 63) >>> 6];
+    }
+
+    /**
+     * Creates labels from words of 64 bits, in which bit s % 64 of word s / 64 is the label of state s.
+     */
+    public Labels(long[] words) {
+        this.words = words;
     }
 
     public boolean hasLabel(State<?> state) {
-        return labels.get(state.getIndex());
+        return hasLabel(state.getIndex());
+    }
+
+    public boolean hasLabel(int s) {
+        var i = s >>> 6;
+        return i < words.length && (words[i] & (1L << s)) != 0;
+    }
+
+    public long getWord(int i) {
+        return i < words.length ? words[i] : 0;
     }
 
     public boolean setLabel(State<?> state) {
-        boolean alreadySet = labels.get(state.getIndex());
-        labels.set(state.getIndex());
+        return setLabel(state.getIndex());
+    }
+
+    public boolean setLabel(int s) {
+        var i = s >>> 6;
+        if (i >= words.length) {
+            words = Arrays.copyOf(words, Math.max(i + 1, 2 * words.length));
+        }
+        var alreadySet = (words[i] & (1L << s)) != 0;
+        words[i] |= 1L << s;
         return !alreadySet;
     }
 
+    /**
+     * Sets the label of a state, which must be less than the capacity, and returns true if it was not set before. Of
+     * concurrent calls for the same state, exactly one returns true.
+     */
+    public boolean setLabelAtomically(int s) {
+        var mask = 1L << s;
+        return ((long) WORDS.getAndBitwiseOr(words, s >>> 6, mask) & mask) == 0;
+    }
+
     public boolean allHaveLabel(Collection<State<?>> states) {
         return states.stream().allMatch(this::hasLabel);
     }
@@ -27,4 +73,40 @@ public class Labels {
     public boolean anyHaveLabel(Collection<State<?>> states) {
         return states.stream().anyMatch(this::hasLabel);
     }
+
+    public boolean anyNextHaveLabel(Model<?> model, int s) {
+        for (int i = model.getForwardOffset(s); i < model.getForwardOffset(s + 1); i++) {
+            if (hasLabel(model.getForwardTarget(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean allNextHaveLabel(Model<?> model, int s) {
+        for (int i = model.getForwardOffset(s); i < model.getForwardOffset(s + 1); i++) {
+            if (!hasLabel(model.getForwardTarget(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean anyPreviousHaveLabel(Model<?> model, int t) {
+        for (int i = model.getBackwardOffset(t); i < model.getBackwardOffset(t + 1); i++) {
+            if (hasLabel(model.getBackwardSource(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean allPreviousHaveLabel(Model<?> model, int t) {
+        for (int i = model.getBackwardOffset(t); i < model.getBackwardOffset(t + 1); i++) {
+            if (!hasLabel(model.getBackwardSource(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -5,60 +5,74 @@ import discourje.core.lts.LTS;
 import discourje.core.lts.Transitions;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The abstract model the is used to check the {@link LTS} using CTL.
+ * <p>
+ * A state of the model is a pair of a state of the LTS and the action through which it was reached (null for initial
+ * states). States are numbered 0, 1, 2, ..., and transitions are stored in compressed-sparse-row form: the successors
+ * of state s are at indices forwardOffsets[s] (inclusive) to forwardOffsets[s + 1] (exclusive) of forwardTargets; the
+ * predecessors are stored likewise in the backward arrays. The action of every state is stored as an index into the
+ * actions of the model (-1 for none). Formulas are labelled on these arrays; {@link State} objects are views, for
+ * witnesses and callers outside this package.
  */
 public class Model<Spec> {
 
-    class DmState {
-        discourje.core.lts.State<Spec> s;
-        Action a;
+    private final int[] initialStates;
 
-        DmState(discourje.core.lts.State<Spec> s, Action a) {
-            this.s = s;
-            this.a = a;
-        }
+    private final Action[] actions;
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            DmState that = (DmState) o;
-            return Objects.equals(s, that.s) &&
-                    Objects.equals(a, that.a);
-        }
+    private final int[] actionIds;
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(s, a);
-        }
-    }
+    private final int[] forwardOffsets;
 
-    private final Collection<State<Spec>> initialStates;
+    private final int[] forwardTargets;
 
-    private final Collection<State<Spec>> states = new LinkedHashSet<>();
+    private final int[] backwardOffsets;
 
-    private final Map<DmState, State<Spec>> dmStateMap = new HashMap<>();
+    private final int[] backwardSources;
 
-    private final Collection<Channel> channels = new HashSet<>();
+    private final State<Spec>[] states;
 
-    private int currentActionIndex = 0;
+    private final Collection<Channel> channels = new HashSet<>();
 
-    private final Map<Formula, Labels> stateLabelsByFormula = new HashMap<>();
+    private final Map<Formula, ForkJoinTask<Labels>> stateLabelsByFormula = new ConcurrentHashMap<>();
 
+    /**
+     * Creates the model of an LTS, in a single pass over its states. A state of the model is created for every target
+     * of every transition, and its successors are the states created for the transitions of its LTS state; so, the
+     * successors are recorded per LTS state in the pass, and copied per state of the model afterwards. The LTS is
+     * expanded in parallel on the common pool, after which its states are renumbered deterministically (see
+     * {@link LTS#expandRecursively(int, ForkJoinPool)}).
+     */
+    @SuppressWarnings("unchecked")
     public Model(LTS<Spec> lts) {
-        lts.expandRecursively();
+        lts.expandRecursively(ForkJoinPool.commonPool());
+
+        var builder = new Builder<Spec>();
         lts.getInitialStates().stream()
                 .sorted(Comparator.comparing(discourje.core.lts.State::getIdentifier))
-                .forEach(is -> addState(is, null));
-        initialStates = new ArrayList<>(states);
+                .forEach(s -> builder.getOrAdd(s, null));
+        this.initialStates = new int[builder.n];
+        for (int s = 0; s < builder.n; s++) {
+            initialStates[s] = s;
+        }
 
         for (discourje.core.lts.State<Spec> state : lts.getStates()) {
+            var source = builder.indexOf(state);
+            builder.begin(source);
             Transitions<Spec> transitions = state.getTransitionsOrNull();
+            if (transitions == null) {
+                continue;
+            }
             for (Action action : transitions.getActions()) {
-                for (discourje.core.lts.State<Spec> targetState : transitions.getTargetsOrNull(action)) {
-                    addState(targetState, action);
+                for (discourje.core.lts.State<Spec> target : transitions.getTargetsOrNull(action)) {
+                    builder.addSuccessor(source, builder.getOrAdd(target, action));
                 }
                 if (action.getSender() != null || action.getReceiver() != null) {
                     channels.add(new Channel(action.getSender(), action.getReceiver()));
@@ -66,58 +80,377 @@ public class Model<Spec> {
             }
         }
 
-        for (State<Spec> dmState : states) {
-            Transitions<Spec> transitions = dmState.getState().getTransitionsOrNull();
-            for (Action action : transitions.getActions()) {
-                for (discourje.core.lts.State<Spec> state : transitions.getTargetsOrNull(action)) {
-                    State<Spec> nextState = findState(state, action);
-                    dmState.addNextState(nextState);
-                }
-            }
+        var n = builder.n;
+        this.actions = builder.actions.toArray(new Action[0]);
+        this.actionIds = Arrays.copyOf(builder.actionIds, n);
+
+        this.forwardOffsets = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            var p = builder.ltsStates[s];
+            forwardOffsets[s + 1] = forwardOffsets[s] + builder.ends[p] - builder.begins[p];
+        }
+        this.forwardTargets = new int[forwardOffsets[n]];
+        for (int s = 0; s < n; s++) {
+            var p = builder.ltsStates[s];
+            System.arraycopy(builder.successors, builder.begins[p], forwardTargets, forwardOffsets[s],
+                    builder.ends[p] - builder.begins[p]);
+        }
+
+        this.backwardOffsets = new int[n + 1];
+        this.backwardSources = new int[forwardTargets.length];
+        invert();
+
+        this.states = (State<Spec>[]) new State<?>[n];
+        for (int s = 0; s < n; s++) {
+            var action = actionIds[s] == -1 ? null : actions[actionIds[s]];
+            states[s] = new State<>(this, builder.ltsStatesByIndex.get(builder.ltsStates[s]), action, s);
         }
     }
 
+    /**
+     * Creates the model of the given states, which are all initial, and whose indices must be distinct and less than
+     * the number of states.
+     */
+    @SuppressWarnings("unchecked")
     public Model(State<Spec>[] states) {
-        this.initialStates = Arrays.asList(states);
-        this.states.addAll(Arrays.asList(states));
-    }
+        var n = states.length;
+        var actionIdsByAction = new IdentityHashMap<Action, Integer>();
+        this.states = (State<Spec>[]) new State<?>[n];
+        this.initialStates = new int[n];
+        this.actionIds = new int[n];
+        this.forwardOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            var s = states[i].getIndex();
+            this.states[s] = states[i];
+            initialStates[i] = s;
+            var action = states[i].getAction();
+            actionIds[s] = action == null ? -1
+                    : actionIdsByAction.computeIfAbsent(action, a -> actionIdsByAction.size());
+            forwardOffsets[s + 1] = states[i].getNextStates().size();
+        }
+        this.actions = new Action[actionIdsByAction.size()];
+        actionIdsByAction.forEach((a, i) -> actions[i] = a);
 
-    private void addState(discourje.core.lts.State<Spec> state, Action action) {
-        if (!dmStateMap.containsKey(new DmState(state, action))) {
-            State<Spec> newState = new State<>(state, action, currentActionIndex++);
-            states.add(newState);
-            dmStateMap.put(new DmState(state, action), newState);
+        for (int s = 0; s < n; s++) {
+            forwardOffsets[s + 1] += forwardOffsets[s];
+        }
+        this.forwardTargets = new int[forwardOffsets[n]];
+        for (int s = 0; s < n; s++) {
+            var i = forwardOffsets[s];
+            for (State<?> next : this.states[s].getNextStates()) {
+                forwardTargets[i++] = next.getIndex();
+            }
         }
+
+        this.backwardOffsets = new int[n + 1];
+        this.backwardSources = new int[forwardTargets.length];
+        invert();
     }
 
-    private State<Spec> findState(discourje.core.lts.State<Spec> state, Action action) {
-        return dmStateMap.get(new DmState(state, action));
+    private void invert() {
+        var n = numberOfStates();
+        for (int target : forwardTargets) {
+            backwardOffsets[target + 1]++;
+        }
+        for (int t = 0; t < n; t++) {
+            backwardOffsets[t + 1] += backwardOffsets[t];
+        }
+        var next = Arrays.copyOf(backwardOffsets, n);
+        for (int s = 0; s < n; s++) {
+            for (int i = forwardOffsets[s]; i < forwardOffsets[s + 1]; i++) {
+                backwardSources[next[forwardTargets[i]]++] = s;
+            }
+        }
     }
 
     public Collection<State<Spec>> getInitialStates() {
-        return Collections.unmodifiableCollection(initialStates);
+        var result = new ArrayList<State<Spec>>(initialStates.length);
+        for (int s : initialStates) {
+            result.add(states[s]);
+        }
+        return Collections.unmodifiableCollection(result);
     }
 
     public Collection<State<Spec>> getStates() {
-        return Collections.unmodifiableCollection(states);
+        return Collections.unmodifiableList(Arrays.asList(states));
+    }
+
+    public State<Spec> getState(int s) {
+        return states[s];
     }
 
     public Collection<Channel> getChannels() {
         return Collections.unmodifiableCollection(channels);
     }
 
+    public int numberOfStates() {
+        return forwardOffsets.length - 1;
+    }
+
+    public int numberOfActions() {
+        return actions.length;
+    }
+
+    public Action getAction(int a) {
+        return actions[a];
+    }
+
+    /**
+     * Returns the index of the action of state s in the actions of this model, or -1 if s has none.
+     */
+    public int getActionId(int s) {
+        return actionIds[s];
+    }
+
+    public int getForwardOffset(int s) {
+        return forwardOffsets[s];
+    }
+
+    public int getForwardTarget(int i) {
+        return forwardTargets[i];
+    }
+
+    public int getBackwardOffset(int t) {
+        return backwardOffsets[t];
+    }
+
+    public int getBackwardSource(int i) {
+        return backwardSources[i];
+    }
+
+    public int outDegree(int s) {
+        return forwardOffsets[s + 1] - forwardOffsets[s];
+    }
+
+    public int inDegree(int t) {
+        return backwardOffsets[t + 1] - backwardOffsets[t];
+    }
+
+    Collection<State<?>> getNextStates(int s) {
+        return new Neighbours(forwardOffsets, forwardTargets, s);
+    }
+
+    Collection<State<?>> getPreviousStates(int t) {
+        return new Neighbours(backwardOffsets, backwardSources, t);
+    }
+
+    /**
+     * Returns true if the state has the label of the formula, labelling the formula first if needed (propositional
+     * subformulas are not labelled separately; see {@link discourje.core.ctl.formulas.Propositional}).
+     */
     public boolean hasLabel(State<?> state, Formula formula) {
-        return stateLabelsByFormula.get(formula).hasLabel(state);
+        return calculateLabels(formula).hasLabel(state);
     }
 
     public Labels getLabels(Formula formula) {
-        return stateLabelsByFormula.get(formula);
+        var task = stateLabelsByFormula.get(formula);
+        return task == null ? null : task.join();
     }
 
+    /**
+     * Returns the labels of a formula, labelling it in the current thread unless it has been labelled (or is being
+     * labelled by another thread) before. Every formula is labelled at most once.
+     */
     public Labels calculateLabels(Formula formula) {
-        if (stateLabelsByFormula.get(formula) == null) {
-            stateLabelsByFormula.put(formula, formula.label(this));
+        var task = stateLabelsByFormula.get(formula);
+        if (task == null) {
+            var newTask = ForkJoinTask.adapt(() -> formula.label(this));
+            task = stateLabelsByFormula.putIfAbsent(formula, newTask);
+            if (task == null) {
+                return newTask.invoke();
+            }
+        }
+        return task.join();
+    }
+
+    public void calculateLabels(Collection<? extends Formula> formulas) {
+        calculateLabels(formulas, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Labels the given formulas, and their subformulas, on the pool. The subformulas form a DAG (shared subformulas
+     * are equal, so they occur once); a formula is labelled as soon as all of its subformulas have been labelled, so
+     * independent subformulas are labelled concurrently.
+     */
+    public void calculateLabels(Collection<? extends Formula> formulas, ForkJoinPool pool) {
+        var parents = new HashMap<Formula, List<Formula>>();
+        var pending = new HashMap<Formula, AtomicInteger>();
+        var todo = new ArrayDeque<Formula>(formulas);
+        while (!todo.isEmpty()) {
+            var formula = todo.pop();
+            if (pending.containsKey(formula)) {
+                continue;
+            }
+            var task = stateLabelsByFormula.get(formula);
+            if (task != null && task.isDone()) {
+                pending.put(formula, new AtomicInteger(0));
+                continue;
+            }
+            var subformulas = new LinkedHashSet<>(formula.getSubformulas());
+            pending.put(formula, new AtomicInteger(subformulas.size()));
+            for (Formula subformula : subformulas) {
+                parents.computeIfAbsent(subformula, k -> new ArrayList<>()).add(formula);
+                todo.push(subformula);
+            }
+        }
+
+        pool.invoke(new CountedCompleter<Void>() {
+            @Override
+            public void compute() {
+                pending.forEach((formula, n) -> {
+                    if (n.get() == 0) {
+                        addToPendingCount(1);
+                        new LabelTask(this, formula, parents, pending).fork();
+                    }
+                });
+                tryComplete();
+            }
+        });
+    }
+
+    /**
+     * Labels a formula, and then forks one subtask per parent of which it was the last pending subformula.
+     */
+    private class LabelTask extends CountedCompleter<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Formula formula;
+
+        private final Map<Formula, List<Formula>> parents;
+
+        private final Map<Formula, AtomicInteger> pending;
+
+        private LabelTask(CountedCompleter<?> parent, Formula formula,
+                          Map<Formula, List<Formula>> parents, Map<Formula, AtomicInteger> pending) {
+            super(parent);
+            this.formula = formula;
+            this.parents = parents;
+            this.pending = pending;
+        }
+
+        @Override
+        public void compute() {
+            calculateLabels(formula);
+            for (Formula parent : parents.getOrDefault(formula, Collections.emptyList())) {
+                if (pending.get(parent).decrementAndGet() == 0) {
+                    addToPendingCount(1);
+                    new LabelTask(this, parent, parents, pending).fork();
+                }
+            }
+            tryComplete();
+        }
+    }
+
+    /**
+     * Unmodifiable view of the successors or predecessors of a state.
+     */
+    private class Neighbours extends AbstractList<State<?>> {
+
+        private final int[] neighbours;
+
+        private final int begin;
+
+        private final int end;
+
+        private Neighbours(int[] offsets, int[] neighbours, int s) {
+            this.neighbours = neighbours;
+            this.begin = offsets[s];
+            this.end = offsets[s + 1];
+        }
+
+        @Override
+        public State<?> get(int i) {
+            return states[neighbours[begin + i]];
+        }
+
+        @Override
+        public int size() {
+            return end - begin;
+        }
+    }
+
+    /**
+     * Growable arrays in which the states of the model, and the successors of the states of the LTS, are collected in
+     * the single pass over the LTS. States of the LTS are numbered in order of appearance (p); the state of the model
+     * for (p, action) is found through a map from p and the index of the action.
+     */
+    private static class Builder<Spec> {
+
+        private int n = 0;
+
+        private int[] ltsStates = new int[16];
+
+        private int[] actionIds = new int[16];
+
+        private final List<Action> actions = new ArrayList<>();
+
+        private final Map<Action, Integer> actionIdsByAction = new HashMap<>();
+
+        private final Map<discourje.core.lts.State<Spec>, Integer> indicesByLtsState = new HashMap<>();
+
+        private final List<discourje.core.lts.State<Spec>> ltsStatesByIndex = new ArrayList<>();
+
+        private final Map<Long, Integer> statesByKey = new HashMap<>();
+
+        private int[] begins = new int[16];
+
+        private int[] ends = new int[16];
+
+        private int[] successors = new int[16];
+
+        private int numberOfSuccessors = 0;
+
+        private int indexOf(discourje.core.lts.State<Spec> state) {
+            var p = indicesByLtsState.get(state);
+            if (p == null) {
+                p = ltsStatesByIndex.size();
+                indicesByLtsState.put(state, p);
+                ltsStatesByIndex.add(state);
+                if (p == begins.length) {
+                    begins = Arrays.copyOf(begins, 2 * p);
+                    ends = Arrays.copyOf(ends, 2 * p);
+                }
+            }
+            return p;
+        }
+
+        private int getOrAdd(discourje.core.lts.State<Spec> state, Action action) {
+            var p = indexOf(state);
+            var a = -1;
+            if (action != null) {
+                a = actionIdsByAction.computeIfAbsent(action, k -> {
+                    actions.add(k);
+                    return actions.size() - 1;
+                });
+            }
+
+            var key = ((long) p << 32) | (a + 1);
+            var s = statesByKey.get(key);
+            if (s == null) {
+                s = n++;
+                statesByKey.put(key, s);
+                if (s == ltsStates.length) {
+                    ltsStates = Arrays.copyOf(ltsStates, 2 * s);
+                    actionIds = Arrays.copyOf(actionIds, 2 * s);
+                }
+                ltsStates[s] = p;
+                actionIds[s] = a;
+            }
+            return s;
+        }
+
+        private void begin(int p) {
+            begins[p] = numberOfSuccessors;
+            ends[p] = numberOfSuccessors;
+        }
+
+        private void addSuccessor(int p, int s) {
+            if (numberOfSuccessors == successors.length) {
+                successors = Arrays.copyOf(successors, 2 * numberOfSuccessors);
+            }
+            successors[numberOfSuccessors++] = s;
+            ends[p] = numberOfSuccessors;
         }
-        return stateLabelsByFormula.get(formula);
     }
 }
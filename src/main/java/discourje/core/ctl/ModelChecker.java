@@ -10,6 +10,7 @@ import discourje.core.ctl.rules.DoNotSendToSelf;
 import discourje.core.ctl.rules.UsedChannelsMustBeClosed;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -35,7 +36,14 @@ public class ModelChecker {
         this.rules = rules;
     }
 
+    /**
+     * Checks the rules against every channel of the model. The formulas of all rules are labelled in parallel first,
+     * so each rule then only reads labels.
+     */
     public List<String> checkModel() {
+        dmModel.calculateLabels(rules.stream()
+                .flatMap(r -> r.createCtlFormulas(dmModel).stream())
+                .collect(Collectors.toList()));
         return rules.stream()
                 .flatMap(r -> r.getValidationErrors(dmModel).stream())
                 .collect(Collectors.toList());
@@ -43,7 +51,7 @@ public class ModelChecker {
 
     public static boolean check(LTS<?> lts, Formula f) {
         var model = new Model<>(lts);
-        model.calculateLabels(f);
+        model.calculateLabels(Collections.singletonList(f));
         return model.getInitialStates().stream().allMatch(s -> model.hasLabel(s, f));
     }
 }
@@ -1,11 +1,21 @@
 package discourje.core.ctl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public abstract class Rule {
 
+    public Collection<Formula> createCtlFormulas(Model<?> model) {
+        List<Formula> result = new ArrayList<>();
+        for (Channel channel : model.getChannels()) {
+            result.add(createCtlFormula(channel.getSender(), channel.getReceiver()));
+        }
+        return result;
+    }
+
     public Collection<String> getValidationErrors(Model<?> model) {
         Set<String> result = new HashSet<>(0);
         for (Channel channel : model.getChannels()) {
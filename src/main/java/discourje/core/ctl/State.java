@@ -6,13 +6,29 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 public class State<Spec> {
+    private final Model<Spec> model;
     private final discourje.core.lts.State state;
     private final Action action;
-    private final Collection<State<Spec>> nextStates = new LinkedHashSet<>();
-    private final Collection<State<Spec>> previousStates = new LinkedHashSet<>();
+    private final Collection<State<Spec>> nextStates;
+    private final Collection<State<Spec>> previousStates;
     private final int index;
 
     public State(discourje.core.lts.State state, Action action, int index) {
+        this.model = null;
+        this.nextStates = new LinkedHashSet<>();
+        this.previousStates = new LinkedHashSet<>();
+        this.state = state;
+        this.action = action;
+        this.index = index;
+    }
+
+    /**
+     * Creates a view of state index of the given model, which provides the next and previous states.
+     */
+    State(Model<Spec> model, discourje.core.lts.State<Spec> state, Action action, int index) {
+        this.model = model;
+        this.nextStates = null;
+        this.previousStates = null;
         this.state = state;
         this.action = action;
         this.index = index;
@@ -27,15 +43,24 @@ public class State<Spec> {
     }
 
     public Collection<State<?>> getNextStates() {
+        if (model != null) {
+            return model.getNextStates(index);
+        }
         return Collections.unmodifiableCollection(nextStates);
     }
 
     public void addNextState(State<Spec> state) {
+        if (model != null || state.model != null) {
+            throw new UnsupportedOperationException();
+        }
         nextStates.add(state);
         state.previousStates.add(this);
     }
 
     public Collection<State<?>> getPreviousStates() {
+        if (model != null) {
+            return model.getPreviousStates(index);
+        }
         return Collections.unmodifiableCollection(previousStates);
     }
 
@@ -55,9 +80,9 @@ public class State<Spec> {
 
     @Override
     public String toString() {
-        return previousStates.stream().map(State::getState).collect(Collectors.toList()) + "(" + previousStates.size() + ")" +
+        return getPreviousStates().stream().map(State::getState).collect(Collectors.toList()) + "(" + getPreviousStates().size() + ")" +
                 " -> " + action + "," + state + " -> " +
-                nextStates.stream().map(State::getState).collect(Collectors.toList());
+                getNextStates().stream().map(State::getState).collect(Collectors.toList());
     }
 
     public int getIndex() {
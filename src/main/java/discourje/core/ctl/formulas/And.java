@@ -1,16 +1,15 @@
 package discourje.core.ctl.formulas;
 
 import discourje.core.ctl.Formula;
-import discourje.core.ctl.Labels;
 import discourje.core.ctl.Model;
 import discourje.core.ctl.State;
 import discourje.core.lts.Action;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-public class And implements Formula {
+public class And extends Propositional {
     private final Formula[] args;
     private final int hash;
 
@@ -36,21 +35,26 @@ public class And implements Formula {
     }
 
     @Override
-    public Labels label(Model<?> model) {
-        Labels labels = new Labels();
-        Collection<Labels> argLabels = Arrays.stream(args)
-                .map(model::calculateLabels)
-                .collect(Collectors.toList());
-
-        model.getStates().stream()
-                .filter(s -> argLabels.stream().allMatch(arg -> arg.hasLabel(s)))
-                .forEach(labels::setLabel);
-        return labels;
+    public List<Formula> split() {
+        return Arrays.asList(args);
     }
 
     @Override
-    public List<Formula> split() {
-        return Arrays.asList(args);
+    protected Words compile(Function<Formula, Words> operands) {
+        Words[] argWords = Arrays.stream(args)
+                .map(arg -> compile(arg, operands))
+                .toArray(Words[]::new);
+
+        return i -> {
+            long word = -1L;
+            for (Words arg : argWords) {
+                word &= arg.get(i);
+                if (word == 0) {
+                    break;
+                }
+            }
+            return word;
+        };
     }
 
     @Override
@@ -2,11 +2,13 @@ package discourje.core.ctl.formulas;
 
 import discourje.core.lts.Action;
 import discourje.core.ctl.Formula;
+import discourje.core.ctl.Labels;
 import discourje.core.ctl.Model;
 import discourje.core.ctl.State;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 public abstract class Atomic implements Formula {
 
@@ -23,4 +25,24 @@ public abstract class Atomic implements Formula {
     public final boolean isTemporal() {
         return false;
     }
+
+    /**
+     * Labels every state whose (non-null) action passes the test. The test is evaluated once per action of the model,
+     * instead of once per state.
+     */
+    protected Labels labelByAction(Model<?> model, Predicate<Action> test) {
+        Labels labels = new Labels();
+        boolean[] results = new boolean[model.numberOfActions()];
+        for (int a = 0; a < results.length; a++) {
+            results[a] = test.test(model.getAction(a));
+        }
+
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            int a = model.getActionId(s);
+            if (a != -1 && results[a]) {
+                labels.setLabel(s);
+            }
+        }
+        return labels;
+    }
 }
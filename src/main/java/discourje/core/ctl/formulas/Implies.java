@@ -1,14 +1,14 @@
 package discourje.core.ctl.formulas;
 
 import discourje.core.ctl.Formula;
-import discourje.core.ctl.Labels;
 import discourje.core.ctl.Model;
 import discourje.core.ctl.State;
 import discourje.core.lts.Action;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
-public class Implies implements Formula {
+public class Implies extends Propositional {
     private final Formula lhs;
     private final Formula rhs;
     private final int hash;
@@ -34,17 +34,10 @@ public class Implies implements Formula {
     }
 
     @Override
-    public Labels label(Model<?> model) {
-        Labels labels = new Labels();
-        Labels lhsLabels = model.calculateLabels(lhs);
-        Labels rhsLabels = model.calculateLabels(rhs);
-
-        for (State<?> state : model.getStates()) {
-            if (!lhsLabels.hasLabel(state) || rhsLabels.hasLabel(state)) {
-                labels.setLabel(state);
-            }
-        }
-        return labels;
+    protected Words compile(Function<Formula, Words> operands) {
+        Words lhsWords = compile(lhs, operands);
+        Words rhsWords = compile(rhs, operands);
+        return i -> ~lhsWords.get(i) | rhsWords.get(i);
     }
 
     @Override
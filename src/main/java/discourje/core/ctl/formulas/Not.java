@@ -1,6 +1,5 @@
 package discourje.core.ctl.formulas;
 
-import discourje.core.ctl.Labels;
 import discourje.core.lts.Action;
 import discourje.core.ctl.Formula;
 import discourje.core.ctl.State;
@@ -9,8 +8,9 @@ import discourje.core.ctl.Model;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
-public class Not implements Formula {
+public class Not extends Propositional {
     private final Formula arg;
     private final int hash;
 
@@ -38,15 +38,9 @@ public class Not implements Formula {
     }
 
     @Override
-    public Labels label(Model<?> model) {
-        Labels labels = new Labels();
-        Labels argLabels = model.calculateLabels(arg);
-        for (State<?> state : model.getStates()) {
-            if (!argLabels.hasLabel(state)) {
-                labels.setLabel(state);
-            }
-        }
-        return labels;
+    protected Words compile(Function<Formula, Words> operands) {
+        Words argWords = compile(arg, operands);
+        return i -> ~argWords.get(i);
     }
 
     @Override
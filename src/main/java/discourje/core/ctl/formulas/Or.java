@@ -1,17 +1,16 @@
 package discourje.core.ctl.formulas;
 
 import discourje.core.ctl.Formula;
-import discourje.core.ctl.Labels;
 import discourje.core.ctl.Model;
 import discourje.core.ctl.State;
 import discourje.core.lts.Action;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-public class Or implements Formula {
+public class Or extends Propositional {
     private final Formula[] args;
     private final int hash;
 
@@ -46,16 +45,21 @@ public class Or implements Formula {
     }
 
     @Override
-    public Labels label(Model<?> model) {
-        Labels labels = new Labels();
-        Collection<Labels> argLabels = Arrays.stream(args)
-                .map(model::calculateLabels)
-                .collect(Collectors.toList());
+    protected Words compile(Function<Formula, Words> operands) {
+        Words[] argWords = Arrays.stream(args)
+                .map(arg -> compile(arg, operands))
+                .toArray(Words[]::new);
 
-        model.getStates().stream()
-                .filter(s -> argLabels.stream().anyMatch(arg -> arg.hasLabel(s)))
-                .forEach(labels::setLabel);
-        return labels;
+        return i -> {
+            long word = 0;
+            for (Words arg : argWords) {
+                word |= arg.get(i);
+                if (word == -1L) {
+                    break;
+                }
+            }
+            return word;
+        };
     }
 
     @Override
@@ -0,0 +1,63 @@
+package discourje.core.ctl.formulas;
+
+import discourje.core.ctl.Formula;
+import discourje.core.ctl.Labels;
+import discourje.core.ctl.Model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Formula built from other formulas by propositional connectives. A maximal propositional subtree is labelled in one
+ * pass: it is compiled to a function from the index of a 64-bit word of labels to the word of its result, in terms of
+ * the words of its operands (the non-propositional formulas at its leaves), and this function is applied to every
+ * word. Operands are labelled separately (they are the subformulas), but nested propositional formulas are not.
+ */
+public abstract class Propositional implements Formula {
+
+    /**
+     * Function from the index of a word of labels to the word.
+     */
+    protected interface Words {
+        long get(int i);
+    }
+
+    /**
+     * Compiles this formula, given the words of its operands.
+     */
+    protected abstract Words compile(Function<Formula, Words> operands);
+
+    protected static Words compile(Formula formula, Function<Formula, Words> operands) {
+        if (formula instanceof Propositional) {
+            return ((Propositional) formula).compile(operands);
+        }
+        return operands.apply(formula);
+    }
+
+    @Override
+    public final List<Formula> getSubformulas() {
+        var operands = new LinkedHashSet<Formula>();
+        compile(f -> {
+            operands.add(f);
+            return i -> 0;
+        });
+        return new ArrayList<>(operands);
+    }
+
+    @Override
+    public final Labels label(Model<?> model) {
+        var words = compile(f -> model.calculateLabels(f)::getWord);
+
+        var n = model.numberOfStates();
+        var result = new long[(n + 63) >>> 6];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = words.get(i);
+        }
+        if ((n & 63) != 0) {
+            result[result.length - 1] &= (1L << n) - 1;
+        }
+        return new Labels(result);
+    }
+}
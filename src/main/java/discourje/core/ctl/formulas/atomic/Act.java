@@ -2,7 +2,6 @@ package discourje.core.ctl.formulas.atomic;
 
 import discourje.core.ctl.Labels;
 import discourje.core.ctl.Model;
-import discourje.core.ctl.State;
 import discourje.core.ctl.formulas.Atomic;
 import discourje.core.lts.Action;
 import java.util.Objects;
@@ -18,31 +17,19 @@ public class Act extends Atomic {
 
     @Override
     public Labels label(Model<?> model) {
-        Labels labels = new Labels();
-        for (State<?> state : model.getStates()) {
-            Action action = state.getAction();
-            if (action != null) {
-                switch (action.getType()) {
-                    case SYNC:
-                        if (role.equals((action.getSender())) || role.equals(action.getReceiver())) {
-                            labels.setLabel(state);
-                        }
-                        break;
-                    case CLOSE:
-                    case SEND:
-                        if (role.equals((action.getSender()))) {
-                            labels.setLabel(state);
-                        }
-                        break;
-                    case RECEIVE:
-                        if (role.equals(action.getReceiver())) {
-                            labels.setLabel(state);
-                        }
-                        break;
-                }
+        return labelByAction(model, action -> {
+            switch (action.getType()) {
+                case SYNC:
+                    return role.equals(action.getSender()) || role.equals(action.getReceiver());
+                case CLOSE:
+                case SEND:
+                    return role.equals(action.getSender());
+                case RECEIVE:
+                    return role.equals(action.getReceiver());
+                default:
+                    return false;
             }
-        }
-        return labels;
+        });
     }
 
     @Override
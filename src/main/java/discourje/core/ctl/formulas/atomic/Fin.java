@@ -2,7 +2,6 @@ package discourje.core.ctl.formulas.atomic;
 
 import discourje.core.ctl.Labels;
 import discourje.core.ctl.Model;
-import discourje.core.ctl.State;
 import discourje.core.ctl.formulas.Atomic;
 
 public class Fin extends Atomic {
@@ -15,9 +14,9 @@ public class Fin extends Atomic {
     @Override
     public Labels label(Model<?> model) {
         Labels labels = new Labels();
-        for (State<?> state : model.getStates()) {
-            if (state.getNextStates().isEmpty()) {
-                labels.setLabel(state);
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            if (model.outDegree(s) == 0) {
+                labels.setLabel(s);
             }
         }
         return labels;
@@ -2,7 +2,6 @@ package discourje.core.ctl.formulas.atomic;
 
 import discourje.core.ctl.Labels;
 import discourje.core.ctl.Model;
-import discourje.core.ctl.State;
 import discourje.core.ctl.formulas.Atomic;
 import discourje.core.lts.Action;
 import java.util.Objects;
@@ -25,16 +24,10 @@ public class Handshake extends Atomic {
 
     @Override
     public Labels label(Model<?> model) {
-        Labels labels = new Labels();
-        for (State<?> state : model.getStates()) {
-            Action action = state.getAction();
-            if (action != null && action.getType() == Action.Type.SYNC &&
-                    (sender == null || sender.equals(action.getSender())) &&
-                    (receiver == null || receiver.equals(action.getReceiver()))) {
-                labels.setLabel(state);
-            }
-        }
-        return labels;
+        return labelByAction(model, action ->
+                action.getType() == Action.Type.SYNC &&
+                        (sender == null || sender.equals(action.getSender())) &&
+                        (receiver == null || receiver.equals(action.getReceiver())));
     }
 
     @Override
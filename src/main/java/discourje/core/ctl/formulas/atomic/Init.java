@@ -1,8 +1,6 @@
 package discourje.core.ctl.formulas.atomic;
 
 import discourje.core.ctl.Labels;
-import discourje.core.lts.Action;
-import discourje.core.ctl.State;
 import discourje.core.ctl.Model;
 import discourje.core.ctl.formulas.Atomic;
 
@@ -16,10 +14,9 @@ public class Init extends Atomic {
     @Override
     public Labels label(Model<?> model) {
         Labels labels = new Labels();
-        for (State<?> state : model.getStates()) {
-            Action action = state.getAction();
-            if (action == null) {
-                labels.setLabel(state);
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            if (model.getActionId(s) == -1) {
+                labels.setLabel(s);
             }
         }
         return labels;
@@ -1,7 +1,6 @@
 package discourje.core.ctl.formulas.atomic;
 
 import discourje.core.ctl.Labels;
-import discourje.core.ctl.State;
 import discourje.core.ctl.Model;
 import discourje.core.ctl.formulas.Atomic;
 
@@ -15,8 +14,8 @@ public class True extends Atomic {
     @Override
     public Labels label(Model<?> model) {
         Labels labels = new Labels();
-        for (State<?> state : model.getStates()) {
-            labels.setLabel(state);
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            labels.setLabel(s);
         }
         return labels;
     }
@@ -81,10 +81,14 @@ public class AF extends Temporal {
         return Arrays.asList(segment1, segment2);
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(new AU(True.INSTANCE, arg));
+    }
+
     @Override
     public Labels label(Model<?> model) {
-        Formula au = new AU(True.INSTANCE, arg);
-        return model.calculateLabels(au);
+        return model.calculateLabels(getSubformulas().get(0));
     }
 
     @Override
@@ -75,10 +75,14 @@ public class AG extends Temporal {
         return segments;
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(not(EF(not(arg))));
+    }
+
     @Override
     public Labels label(Model<?> model) {
-        Formula ag = not(EF(not(arg)));
-        return model.calculateLabels(ag);
+        return model.calculateLabels(getSubformulas().get(0));
     }
 
     @Override
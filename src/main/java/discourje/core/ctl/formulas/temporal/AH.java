@@ -34,10 +34,14 @@ public class AH extends Temporal {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(not(EP(and(not(arg), not(init())))));
+    }
+
     @Override
     public Labels label(Model<?> model) {
-        Formula ah = not(EP(and(not(arg), not(init()))));
-        return model.calculateLabels(ah);
+        return model.calculateLabels(getSubformulas().get(0));
     }
 
     @Override
@@ -29,10 +29,14 @@ public class AP extends Temporal {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(new AS(True.INSTANCE, arg));
+    }
+
     @Override
     public Labels label(Model<?> model) {
-        Formula ap = new AS(True.INSTANCE, arg);
-        return model.calculateLabels(ap);
+        return model.calculateLabels(getSubformulas().get(0));
     }
 
     @Override
@@ -29,19 +29,39 @@ public class AS extends Temporal {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Arrays.asList(lhs, rhs);
+    }
+
+    /**
+     * Labels states forwards from the rhs-states, with a counter per state of its predecessors that are not yet
+     * labelled: a state that satisfies lhs is labelled when its counter drops to 0. Every state enters the worklist at
+     * most once, so this takes time linear in the size of the model.
+     */
     @Override
     public Labels label(Model<?> model) {
         Labels labels = new Labels();
         Labels lhsLabels = model.calculateLabels(lhs);
         Labels rhsLabels = model.calculateLabels(rhs);
 
-        Queue<State<?>> states = new LinkedList<>(model.getStates());
-        while (!states.isEmpty()) {
-            State<?> state = states.remove();
-            if (rhsLabels.hasLabel(state) ||
-                    (lhsLabels.hasLabel(state) && !state.getPreviousStates().isEmpty() && labels.allHaveLabel(state.getPreviousStates()))) {
-                if (labels.setLabel(state)) {
-                    states.addAll(state.getNextStates());
+        int n = model.numberOfStates();
+        int[] counters = new int[n];
+        int[] worklist = new int[n];
+        int size = 0;
+        for (int s = 0; s < n; s++) {
+            counters[s] = model.inDegree(s);
+            if (rhsLabels.hasLabel(s)) {
+                labels.setLabel(s);
+                worklist[size++] = s;
+            }
+        }
+        while (size > 0) {
+            int t = worklist[--size];
+            for (int i = model.getForwardOffset(t); i < model.getForwardOffset(t + 1); i++) {
+                int s = model.getForwardTarget(i);
+                if (--counters[s] == 0 && lhsLabels.hasLabel(s) && labels.setLabel(s)) {
+                    worklist[size++] = s;
                 }
             }
         }
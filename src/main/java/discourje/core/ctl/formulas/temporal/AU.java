@@ -6,10 +6,10 @@ import discourje.core.ctl.Model;
 import discourje.core.ctl.State;
 import discourje.core.ctl.formulas.Temporal;
 import discourje.core.lts.Action;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
 
 public class AU extends Temporal {
     private final Formula lhs;
@@ -27,18 +27,45 @@ public class AU extends Temporal {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Arrays.asList(lhs, rhs);
+    }
+
+    /**
+     * Labels states backwards from the rhs-states, with a counter per state of its successors that are not yet
+     * labelled: a state that satisfies lhs is labelled when its counter drops to 0. Every state enters the worklist at
+     * most once, so this takes time linear in the size of the model. Large models are labelled in parallel (see
+     * {@link ParallelFixpoints}).
+     */
     @Override
     public Labels label(Model<?> model) {
-        Labels labels = new Labels();
         Labels lhsLabels = model.calculateLabels(lhs);
         Labels rhsLabels = model.calculateLabels(rhs);
-        Queue<State<?>> states = new LinkedList<>(model.getStates());
-        while (!states.isEmpty()) {
-            State<?> state = states.remove();
-            if (rhsLabels.hasLabel(state) ||
-                    (lhsLabels.hasLabel(state) && !state.getNextStates().isEmpty() && labels.allHaveLabel(state.getNextStates()))) {
-                if (labels.setLabel(state)) {
-                    states.addAll(state.getPreviousStates());
+        ForkJoinPool pool = ParallelFixpoints.currentPool();
+        if (ParallelFixpoints.isApplicable(model, pool)) {
+            return ParallelFixpoints.allUntil(model, pool, lhsLabels, rhsLabels);
+        }
+
+        Labels labels = new Labels(model.numberOfStates());
+
+        int n = model.numberOfStates();
+        int[] counters = new int[n];
+        int[] worklist = new int[n];
+        int size = 0;
+        for (int s = 0; s < n; s++) {
+            counters[s] = model.outDegree(s);
+            if (rhsLabels.hasLabel(s)) {
+                labels.setLabel(s);
+                worklist[size++] = s;
+            }
+        }
+        while (size > 0) {
+            int t = worklist[--size];
+            for (int i = model.getBackwardOffset(t); i < model.getBackwardOffset(t + 1); i++) {
+                int s = model.getBackwardSource(i);
+                if (--counters[s] == 0 && lhsLabels.hasLabel(s) && labels.setLabel(s)) {
+                    worklist[size++] = s;
                 }
             }
         }
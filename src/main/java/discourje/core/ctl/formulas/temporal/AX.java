@@ -34,13 +34,18 @@ public class AX extends Temporal {
         throw new IllegalArgumentException();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(arg);
+    }
+
     @Override
     public Labels label(Model<?> model) {
         Labels labels = new Labels();
         Labels argLabels = model.calculateLabels(arg);
-        for (State<?> state : model.getStates()) {
-            if (!state.getNextStates().isEmpty() && argLabels.allHaveLabel(state.getNextStates())) {
-                labels.setLabel(state);
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            if (model.outDegree(s) > 0 && argLabels.allNextHaveLabel(model, s)) {
+                labels.setLabel(s);
             }
         }
         return labels;
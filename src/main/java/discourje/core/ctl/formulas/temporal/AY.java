@@ -29,13 +29,18 @@ public class AY extends Temporal {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(arg);
+    }
+
     @Override
     public Labels label(Model<?> model) {
         Labels labels = new Labels();
         Labels argLabels = model.calculateLabels(arg);
-        for (State<?> state : model.getStates()) {
-            if (!state.getPreviousStates().isEmpty() && argLabels.allHaveLabel(state.getPreviousStates())) {
-                labels.setLabel(state);
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            if (model.inDegree(s) > 0 && argLabels.allPreviousHaveLabel(model, s)) {
+                labels.setLabel(s);
             }
         }
         return labels;
@@ -30,10 +30,14 @@ public class EF extends Temporal {
         }
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(new EU(True.INSTANCE, arg));
+    }
+
     @Override
     public Labels label(Model<?> model) {
-        Formula ef = new EU(True.INSTANCE, arg);
-        return model.calculateLabels(ef);
+        return model.calculateLabels(getSubformulas().get(0));
     }
 
     @Override
@@ -31,10 +31,14 @@ public class EG extends Temporal {
         }
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(not(AF(not(arg))));
+    }
+
     @Override
     public Labels label(Model<?> model) {
-        Formula eg = not(AF(not(arg)));
-        return model.calculateLabels(eg);
+        return model.calculateLabels(getSubformulas().get(0));
     }
 
     @Override
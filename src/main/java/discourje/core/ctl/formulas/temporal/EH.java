@@ -34,10 +34,14 @@ public class EH extends Temporal {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(not(AP(and(not(arg), not(init())))));
+    }
+
     @Override
     public Labels label(Model<?> model) {
-        Formula eh = not(AP(and(not(arg), not(init()))));
-        return model.calculateLabels(eh);
+        return model.calculateLabels(getSubformulas().get(0));
     }
 
     @Override
@@ -29,10 +29,14 @@ public class EP extends Temporal {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(new ES(True.INSTANCE, arg));
+    }
+
     @Override
     public Labels label(Model<?> model) {
-        Formula ep = new ES(True.INSTANCE, arg);
-        return model.calculateLabels(ep);
+        return model.calculateLabels(getSubformulas().get(0));
     }
 
     @Override
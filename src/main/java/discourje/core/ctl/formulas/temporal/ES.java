@@ -29,19 +29,36 @@ public class ES extends Temporal {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Arrays.asList(lhs, rhs);
+    }
+
+    /**
+     * Labels states forwards from the rhs-states: every successor of a labelled state that satisfies lhs is
+     * labelled. Every state enters the worklist at most once, so this takes time linear in the size of the model.
+     */
     @Override
     public Labels label(Model<?> model) {
         Labels labels = new Labels();
         Labels lhsLabels = model.calculateLabels(lhs);
         Labels rhsLabels = model.calculateLabels(rhs);
 
-        Queue<State<?>> states = new LinkedList<>(model.getStates());
-        while (!states.isEmpty()) {
-            State<?> state = states.remove();
-            if (rhsLabels.hasLabel(state) ||
-                    (lhsLabels.hasLabel(state) && !state.getPreviousStates().isEmpty() && labels.anyHaveLabel(state.getPreviousStates()))) {
-                if (labels.setLabel(state)) {
-                    states.addAll(state.getNextStates());
+        int n = model.numberOfStates();
+        int[] worklist = new int[n];
+        int size = 0;
+        for (int s = 0; s < n; s++) {
+            if (rhsLabels.hasLabel(s)) {
+                labels.setLabel(s);
+                worklist[size++] = s;
+            }
+        }
+        while (size > 0) {
+            int t = worklist[--size];
+            for (int i = model.getForwardOffset(t); i < model.getForwardOffset(t + 1); i++) {
+                int s = model.getForwardTarget(i);
+                if (lhsLabels.hasLabel(s) && labels.setLabel(s)) {
+                    worklist[size++] = s;
                 }
             }
         }
@@ -8,6 +8,7 @@ import discourje.core.ctl.Formula;
 import discourje.core.ctl.formulas.Temporal;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class EU extends Temporal {
     private final Formula lhs;
@@ -29,19 +30,42 @@ public class EU extends Temporal {
         }
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Arrays.asList(lhs, rhs);
+    }
+
+    /**
+     * Labels states backwards from the rhs-states: every predecessor of a labelled state that satisfies lhs is
+     * labelled. Every state enters the worklist at most once, so this takes time linear in the size of the model.
+     * Large models are labelled in parallel (see {@link ParallelFixpoints}).
+     */
     @Override
     public Labels label(Model<?> model) {
-        Labels labels = new Labels();
         Labels lhsLabels = model.calculateLabels(lhs);
         Labels rhsLabels = model.calculateLabels(rhs);
+        ForkJoinPool pool = ParallelFixpoints.currentPool();
+        if (ParallelFixpoints.isApplicable(model, pool)) {
+            return ParallelFixpoints.existsUntil(model, pool, lhsLabels, rhsLabels);
+        }
 
-        Queue<State<?>> states = new LinkedList<>(model.getStates());
-        while (!states.isEmpty()) {
-            State<?> state = states.remove();
-            if (rhsLabels.hasLabel(state) ||
-                    (lhsLabels.hasLabel(state) && !state.getNextStates().isEmpty() && labels.anyHaveLabel(state.getNextStates()))) {
-                if (labels.setLabel(state)) {
-                    states.addAll(state.getPreviousStates());
+        Labels labels = new Labels(model.numberOfStates());
+
+        int n = model.numberOfStates();
+        int[] worklist = new int[n];
+        int size = 0;
+        for (int s = 0; s < n; s++) {
+            if (rhsLabels.hasLabel(s)) {
+                labels.setLabel(s);
+                worklist[size++] = s;
+            }
+        }
+        while (size > 0) {
+            int t = worklist[--size];
+            for (int i = model.getBackwardOffset(t); i < model.getBackwardOffset(t + 1); i++) {
+                int s = model.getBackwardSource(i);
+                if (lhsLabels.hasLabel(s) && labels.setLabel(s)) {
+                    worklist[size++] = s;
                 }
             }
         }
@@ -29,13 +29,18 @@ public class EX extends Temporal {
         }
     }
 
+    @Override
+    public List<Formula> getSubformulas() {
+        return Collections.singletonList(arg);
+    }
+
     @Override
     public Labels label(Model<?> model) {
         Labels labels = new Labels();
         Labels argLabels = model.calculateLabels(arg);
-        for (State<?> state : model.getStates()) {
-            if (!state.getNextStates().isEmpty() && argLabels.anyHaveLabel(state.getNextStates())) {
-                labels.setLabel(state);
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            if (model.outDegree(s) > 0 && argLabels.anyNextHaveLabel(model, s)) {
+                labels.setLabel(s);
             }
         }
         return labels;
@@ -0,0 +1,148 @@
+package discourje.core.ctl.formulas.temporal;
+
+import discourje.core.ctl.Labels;
+import discourje.core.ctl.Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parallel versions of the backward fixpoints of {@link EU} and {@link AU} (and so of {@link EF} and {@link AG}, which
+ * are labelled through them), for large models. The fixpoints are computed by a level-synchronous breadth-first search
+ * over the backward adjacency: every level (the states labelled in the previous level) is split into chunks, which are
+ * visited concurrently on the pool that labels the formula (or else the common pool); a state is claimed by an atomic
+ * bit operation on the labels, so it enters the next level exactly once.
+ */
+class ParallelFixpoints {
+
+    /**
+     * Minimal number of states of a model to label it in parallel
+     */
+    private static final int THRESHOLD = 1 << 16;
+
+    /**
+     * Number of states of a level visited by one task
+     */
+    private static final int CHUNK = 1 << 12;
+
+    /**
+     * Returns the pool of the current thread, or else the common pool.
+     */
+    static ForkJoinPool currentPool() {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return pool == null ? ForkJoinPool.commonPool() : pool;
+    }
+
+    static boolean isApplicable(Model<?> model, ForkJoinPool pool) {
+        return model.numberOfStates() >= THRESHOLD && pool.getParallelism() > 1;
+    }
+
+    static Labels existsUntil(Model<?> model, ForkJoinPool pool, Labels lhsLabels, Labels rhsLabels) {
+        int n = model.numberOfStates();
+        Labels labels = new Labels(n);
+
+        int[] level = visit(pool, n, (s, next) -> {
+            if (rhsLabels.hasLabel(s) && labels.setLabelAtomically(s)) {
+                next.add(s);
+            }
+        });
+        while (level.length > 0) {
+            int[] current = level;
+            level = visit(pool, current.length, (j, next) -> {
+                int t = current[j];
+                for (int i = model.getBackwardOffset(t); i < model.getBackwardOffset(t + 1); i++) {
+                    int s = model.getBackwardSource(i);
+                    if (lhsLabels.hasLabel(s) && labels.setLabelAtomically(s)) {
+                        next.add(s);
+                    }
+                }
+            });
+        }
+        return labels;
+    }
+
+    static Labels allUntil(Model<?> model, ForkJoinPool pool, Labels lhsLabels, Labels rhsLabels) {
+        int n = model.numberOfStates();
+        Labels labels = new Labels(n);
+        AtomicIntegerArray counters = new AtomicIntegerArray(n);
+
+        int[] level = visit(pool, n, (s, next) -> {
+            counters.set(s, model.outDegree(s));
+            if (rhsLabels.hasLabel(s) && labels.setLabelAtomically(s)) {
+                next.add(s);
+            }
+        });
+        while (level.length > 0) {
+            int[] current = level;
+            level = visit(pool, current.length, (j, next) -> {
+                int t = current[j];
+                for (int i = model.getBackwardOffset(t); i < model.getBackwardOffset(t + 1); i++) {
+                    int s = model.getBackwardSource(i);
+                    if (counters.decrementAndGet(s) == 0 && lhsLabels.hasLabel(s) && labels.setLabelAtomically(s)) {
+                        next.add(s);
+                    }
+                }
+            });
+        }
+        return labels;
+    }
+
+    /**
+     * Visits indices 0 (inclusive) to size (exclusive) in chunks, concurrently on the pool, and returns the
+     * concatenation of the states added by the visitor.
+     */
+    private static int[] visit(ForkJoinPool pool, int size, Visitor visitor) {
+        List<ForkJoinTask<Buffer>> tasks = new ArrayList<>();
+        for (int begin = 0; begin < size; begin += CHUNK) {
+            int b = begin;
+            int e = Math.min(begin + CHUNK, size);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Buffer buffer = new Buffer();
+                for (int j = b; j < e; j++) {
+                    visitor.visit(j, buffer);
+                }
+                return buffer;
+            }));
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+
+        int length = 0;
+        for (ForkJoinTask<Buffer> task : tasks) {
+            length += task.join().size;
+        }
+        int[] result = new int[length];
+        int i = 0;
+        for (ForkJoinTask<Buffer> task : tasks) {
+            Buffer buffer = task.join();
+            System.arraycopy(buffer.elements, 0, result, i, buffer.size);
+            i += buffer.size;
+        }
+        return result;
+    }
+
+    private interface Visitor {
+        void visit(int i, Buffer next);
+    }
+
+    private static class Buffer {
+
+        private int[] elements = new int[16];
+
+        private int size = 0;
+
+        private void add(int s) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, 2 * size);
+            }
+            elements[size++] = s;
+        }
+    }
+}
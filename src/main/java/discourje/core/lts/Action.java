@@ -11,12 +11,36 @@ public class Action {
     private String sender;
     private String receiver;
 
+    private ActionTable table;
+
+    private int id;
+
+    private int senderId;
+
+    private int receiverId;
+
+    private int hash;
+
     public Action(String name, Type type, Predicate<Object> predicate, String sender, String receiver) {
+        this(name, type, predicate, sender, receiver, null, -1, -1, -1);
+    }
+
+    Action(Action a, ActionTable table, int id, int senderId, int receiverId) {
+        this(a.name, a.type, a.predicate, a.sender, a.receiver, table, id, senderId, receiverId);
+    }
+
+    private Action(String name, Type type, Predicate<Object> predicate, String sender, String receiver,
+                   ActionTable table, int id, int senderId, int receiverId) {
         this.name = name;
         this.type = type;
         this.predicate = predicate;
         this.sender = sender;
         this.receiver = receiver;
+        this.table = table;
+        this.id = id;
+        this.senderId = senderId;
+        this.receiverId = receiverId;
+        this.hash = Objects.hashCode(name);
     }
 
     @Override
@@ -24,12 +48,15 @@ public class Action {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Action action = (Action) o;
-        return Objects.equals(name, action.name);
+        if (table != null && table == action.table) {
+            return id == action.id;
+        }
+        return hash == action.hash && Objects.equals(name, action.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return hash;
     }
 
     @Override
@@ -57,6 +84,26 @@ public class Action {
         return receiver;
     }
 
+    /**
+     * Returns the dense identifier of this action in the {@link ActionTable} of its LTS, or -1 if this action has not
+     * been interned.
+     */
+    public int getId() {
+        return id;
+    }
+
+    int getSenderId() {
+        return senderId;
+    }
+
+    int getReceiverId() {
+        return receiverId;
+    }
+
+    ActionTable getTable() {
+        return table;
+    }
+
     public enum Type {
         SYNC, SEND, RECEIVE, CLOSE;
 
@@ -0,0 +1,74 @@
+package discourje.core.lts;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns the actions of an {@link LTS}: every distinct action (by name) is stored once and gets a dense identifier
+ * 0, 1, 2, ... in order of first occurrence. Interned actions of the same table are equal iff their identifiers are
+ * equal, so comparing them never looks at their names. The senders and receivers of interned actions get role
+ * identifiers in the same way.
+ */
+public class ActionTable {
+
+    private final Map<String, Action> actions = new ConcurrentHashMap<>();
+
+    private final List<Action> actionsById = new ArrayList<>();
+
+    private final Map<String, Integer> roles = new ConcurrentHashMap<>();
+
+    private final AtomicInteger roleCount = new AtomicInteger(0);
+
+    public Action intern(Action a) {
+        if (a.getTable() == this) {
+            return a;
+        }
+
+        return actions.computeIfAbsent(a.getName(), name -> {
+            synchronized (actionsById) {
+                var interned = new Action(a, this, actionsById.size(),
+                        internRole(a.getSender()), internRole(a.getReceiver()));
+                actionsById.add(interned);
+                return interned;
+            }
+        });
+    }
+
+    private int internRole(String role) {
+        return role == null ? -1 : roles.computeIfAbsent(role, r -> roleCount.getAndIncrement());
+    }
+
+    /**
+     * Returns the identifier of the given role, or -1 if no interned action has it as sender or receiver.
+     */
+    public int getRoleId(String role) {
+        if (role == null) {
+            return -1;
+        }
+        var id = roles.get(role);
+        return id == null ? -1 : id;
+    }
+
+    public Action get(int id) {
+        synchronized (actionsById) {
+            return id < actionsById.size() ? actionsById.get(id) : null;
+        }
+    }
+
+    public int size() {
+        synchronized (actionsById) {
+            return actionsById.size();
+        }
+    }
+
+    public Collection<Action> getActions() {
+        synchronized (actionsById) {
+            return Collections.unmodifiableList(new ArrayList<>(actionsById));
+        }
+    }
+}
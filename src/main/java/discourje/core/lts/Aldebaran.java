@@ -0,0 +1,318 @@
+package discourje.core.lts;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Reader and writer of LTSs in Aldebaran format. The writer streams one transition at a time, and the reader parses a
+ * memory-mapped file, so neither holds the LTS as a string.
+ */
+public class Aldebaran {
+
+    /**
+     * Maximal size of a memory-mapped window of the input file.
+     */
+    private static final int WINDOW = Integer.MAX_VALUE;
+
+    public static void write(LTS<?> lts, Writer writer) throws IOException {
+        write(lts, writer, Action::getName);
+    }
+
+    public static void write(LTS<?> lts, WritableByteChannel channel) throws IOException {
+        write(lts, channel, Action::getName);
+    }
+
+    public static void write(LTS<?> lts, WritableByteChannel channel, Function<Action, String> label)
+            throws IOException {
+
+        var writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        write(lts, writer, label);
+        writer.flush();
+    }
+
+    /**
+     * Writes an LTS in Aldebaran format, labelling every transition with the given function of its action.
+     */
+    public static void write(LTS<?> lts, Writer writer, Function<Action, String> label) throws IOException {
+        if (lts.getInitialStates().size() != 1) {
+            throw new IllegalArgumentException();
+        }
+
+        var initialState = lts.getInitialStates().iterator().next();
+        if (initialState.getIdentifier() != 0) {
+            throw new IllegalArgumentException();
+        }
+
+        var states = new ArrayList<State<?>>(lts.getStates());
+        states.sort(Comparator.comparingInt(State::getIdentifier));
+
+        var n = 0;
+        for (State<?> s : states) {
+            var transitions = s.getTransitionsOrNull();
+            n += transitions == null ? 0 : transitions.size();
+        }
+
+        var labels = new HashMap<Action, String>();
+        var w = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        w.write("des (0," + n + "," + states.size() + ")");
+        for (State<?> s : states) {
+            var transitions = s.getTransitionsOrNull();
+            if (transitions == null) {
+                w.write(System.lineSeparator());
+                w.write("*** state " + s.getIdentifier() + " not yet expanded ***");
+                continue;
+            }
+            for (var e : transitions.getTargetsByAction().entrySet()) {
+                var l = labels.computeIfAbsent(e.getKey(), label);
+                for (State<?> target : e.getValue()) {
+                    w.write(System.lineSeparator());
+                    w.write("(");
+                    w.write(Integer.toString(s.getIdentifier()));
+                    w.write(",\"");
+                    w.write(l);
+                    w.write("\",");
+                    w.write(Integer.toString(target.getIdentifier()));
+                    w.write(")");
+                }
+            }
+        }
+        w.flush();
+    }
+
+    /**
+     * Reads an LTS in Aldebaran format. States are identified by their number in the file. Labels are parsed into
+     * actions as written by {@link #write(LTS, Writer)}; as predicates cannot be recovered from a label, every action
+     * of the result accepts every message.
+     */
+    public static LTS<Integer> read(Path path) throws IOException {
+        var parser = new Parser();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = channel.size();
+            var position = 0L;
+            while (position < size) {
+                var length = (int) Math.min(WINDOW, size - position);
+                var buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                var consumed = parser.parse(buffer, position + length == size);
+                if (consumed == 0) {
+                    throw new IOException("Line longer than " + WINDOW + " bytes at offset " + position);
+                }
+                position += consumed;
+            }
+        }
+        return parser.toLTS();
+    }
+
+    private static class Parser {
+
+        private int initialState = -1;
+
+        private int numberOfStates = 0;
+
+        private int[] sources = new int[16];
+
+        private String[] labels = new String[16];
+
+        private int[] targets = new int[16];
+
+        private int numberOfTransitions = 0;
+
+        private Map<String, String> labelsByName = new HashMap<>();
+
+        /**
+         * Parses the complete lines in the buffer (or all lines, if last), and returns the number of bytes consumed.
+         */
+        private int parse(MappedByteBuffer buffer, boolean last) throws IOException {
+            var limit = buffer.limit();
+            var begin = 0;
+            while (begin < limit) {
+                var end = begin;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                if (end == limit && !last) {
+                    break;
+                }
+                parseLine(buffer, begin, end);
+                begin = Math.min(end + 1, limit);
+            }
+            return begin;
+        }
+
+        private void parseLine(MappedByteBuffer buffer, int begin, int end) throws IOException {
+            while (end > begin && Character.isWhitespace(buffer.get(end - 1))) {
+                end--;
+            }
+            while (begin < end && Character.isWhitespace(buffer.get(begin))) {
+                begin++;
+            }
+            if (begin == end || buffer.get(begin) == '*') {
+                return;
+            }
+
+            if (buffer.get(begin) == 'd') {
+                // des (initial,transitions,states)
+                var i = indexOf(buffer, begin, end, '(') + 1;
+                var j = indexOf(buffer, i, end, ',');
+                initialState = parseInt(buffer, i, j);
+                var k = indexOf(buffer, j + 1, end, ',');
+                var m = parseInt(buffer, j + 1, k);
+                numberOfStates = parseInt(buffer, k + 1, indexOf(buffer, k + 1, end, ')'));
+                ensureCapacity(m);
+                return;
+            }
+
+            if (buffer.get(begin) != '(' || buffer.get(end - 1) != ')') {
+                throw new IOException("Malformed transition: " + decode(buffer, begin, end));
+            }
+
+            // (source,"label",target)
+            var i = indexOf(buffer, begin, end, ',');
+            var source = parseInt(buffer, begin + 1, i);
+            var j = end - 1;
+            while (j > i && buffer.get(j) != ',') {
+                j--;
+            }
+            if (j == i) {
+                throw new IOException("Malformed transition: " + decode(buffer, begin, end));
+            }
+            var target = parseInt(buffer, j + 1, end - 1);
+
+            var labelBegin = i + 1;
+            var labelEnd = j;
+            if (buffer.get(labelBegin) == '"' && buffer.get(labelEnd - 1) == '"') {
+                labelBegin++;
+                labelEnd--;
+            }
+            var label = labelsByName.computeIfAbsent(decode(buffer, labelBegin, labelEnd), l -> l);
+
+            ensureCapacity(numberOfTransitions + 1);
+            sources[numberOfTransitions] = source;
+            labels[numberOfTransitions] = label;
+            targets[numberOfTransitions] = target;
+            numberOfTransitions++;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > sources.length) {
+                var length = Math.max(capacity, 2 * sources.length);
+                sources = Arrays.copyOf(sources, length);
+                labels = Arrays.copyOf(labels, length);
+                targets = Arrays.copyOf(targets, length);
+            }
+        }
+
+        private LTS<Integer> toLTS() throws IOException {
+            if (initialState == -1) {
+                throw new IOException("Missing header");
+            }
+
+            var actions = new HashMap<String, Action>();
+            for (String label : labelsByName.keySet()) {
+                actions.put(label, toAction(label));
+            }
+
+            var n = numberOfStates;
+            for (int i = 0; i < numberOfTransitions; i++) {
+                n = Math.max(n, Math.max(sources[i], targets[i]) + 1);
+            }
+
+            var offsets = new int[n + 1];
+            for (int i = 0; i < numberOfTransitions; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int s = 0; s < n; s++) {
+                offsets[s + 1] += offsets[s];
+            }
+            var next = Arrays.copyOf(offsets, n);
+            var sortedActions = new Action[numberOfTransitions];
+            var sortedTargets = new int[numberOfTransitions];
+            for (int i = 0; i < numberOfTransitions; i++) {
+                var j = next[sources[i]]++;
+                sortedActions[j] = actions.get(labels[i]);
+                sortedTargets[j] = targets[i];
+            }
+
+            Function<Integer, Map<Action, Collection<Integer>>> expander = s -> {
+                var expansion = new LinkedHashMap<Action, Collection<Integer>>();
+                for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+                    expansion.computeIfAbsent(sortedActions[i], k -> new LinkedHashSet<>()).add(sortedTargets[i]);
+                }
+                return expansion;
+            };
+
+            return new LTS<>(Collections.singleton(initialState), expander);
+        }
+
+        private static Action toAction(String label) {
+            Action.Type type;
+            switch (label.isEmpty() ? ' ' : label.charAt(0)) {
+                case '\u203D':
+                    type = Action.Type.SYNC;
+                    break;
+                case '!':
+                    type = Action.Type.SEND;
+                    break;
+                case '?':
+                    type = Action.Type.RECEIVE;
+                    break;
+                case 'C':
+                    type = Action.Type.CLOSE;
+                    break;
+                default:
+                    type = null;
+            }
+
+            String sender = null;
+            String receiver = null;
+            if (type != null && label.length() > 2 && label.charAt(1) == '(' && label.endsWith(")")) {
+                var i = label.lastIndexOf(',');
+                var j = i == -1 ? -1 : label.lastIndexOf(',', i - 1);
+                receiver = label.substring(i + 1, label.length() - 1);
+                sender = label.substring(j == -1 ? 2 : j + 1, i == -1 ? 2 : i);
+            }
+
+            return new Action(label, type, message -> true, sender, receiver);
+        }
+
+        private static int indexOf(MappedByteBuffer buffer, int begin, int end, char c) throws IOException {
+            for (int i = begin; i < end; i++) {
+                if (buffer.get(i) == c) {
+                    return i;
+                }
+            }
+            throw new IOException("Expected '" + c + "': " + decode(buffer, begin, end));
+        }
+
+        private static int parseInt(MappedByteBuffer buffer, int begin, int end) throws IOException {
+            var i = 0;
+            var digits = 0;
+            for (int j = begin; j < end; j++) {
+                var b = buffer.get(j);
+                if (b >= '0' && b <= '9') {
+                    i = 10 * i + (b - '0');
+                    digits++;
+                } else if (!Character.isWhitespace(b)) {
+                    throw new IOException("Expected a number: " + decode(buffer, begin, end));
+                }
+            }
+            if (digits == 0) {
+                throw new IOException("Expected a number: " + decode(buffer, begin, end));
+            }
+            return i;
+        }
+
+        private static String decode(MappedByteBuffer buffer, int begin, int end) {
+            var bytes = new byte[end - begin];
+            buffer.duplicate().position(begin).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
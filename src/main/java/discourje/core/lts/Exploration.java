@@ -0,0 +1,72 @@
+package discourje.core.lts;
+
+/**
+ * Settings and cancellation flag of one run of {@link LTS#expand(Exploration)}. The flag is checked between two
+ * expansions, so {@link #cancel()} can be called from any thread to stop the run at the next state.
+ */
+public class Exploration {
+
+    private final Order order;
+
+    private final int budget;
+
+    private final Listener listener;
+
+    private final long interval;
+
+    private volatile boolean cancelled = false;
+
+    public Exploration(Order order, int budget) {
+        this(order, budget, null, 0);
+    }
+
+    /**
+     * @param order    the order in which the frontier is explored
+     * @param budget   the maximum number of states in the LTS; the run stops when it is reached
+     * @param listener the listener to report progress to, or null
+     * @param interval the minimal number of milliseconds between two progress reports
+     */
+    public Exploration(Order order, int budget, Listener listener, long interval) {
+        this.order = order;
+        this.budget = budget;
+        this.listener = listener;
+        this.interval = interval;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public Listener getListenerOrNull() {
+        return listener;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public enum Order {
+        BREADTH_FIRST, DEPTH_FIRST
+    }
+
+    public enum Outcome {
+        COMPLETED, BUDGET_EXHAUSTED, CANCELLED
+    }
+
+    public interface Listener {
+
+        void progress(int states, int expanded, int frontier, double statesPerSecond);
+    }
+}
@@ -0,0 +1,179 @@
+package discourje.core.lts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Fixed-size (128-bit) key of a spec. An {@link LTS} constructed with a fingerprint function identifies states by
+ * their fingerprints instead of their specs, so it can drop the specs of expanded states. Distinct specs with equal
+ * fingerprints are (wrongly) identified; with good fingerprints, this is unlikely enough to ignore. Fingerprints are
+ * computed by a {@link Hasher}.
+ */
+public final class Fingerprint {
+
+    private final long high;
+
+    private final long low;
+
+    public Fingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Fingerprint that = (Fingerprint) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high ^ low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    /**
+     * Computes the 128-bit MurmurHash3 (x64 variant, seed 0) of the bytes that are put into it. Variable-length values
+     * are prefixed by their lengths, so distinct sequences of puts give distinct byte strings.
+     */
+    public static final class Hasher {
+
+        private static final long C1 = 0x87c37b91114253d5L;
+
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private byte[] bytes = new byte[32];
+
+        private int size = 0;
+
+        public Hasher putByte(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+            return this;
+        }
+
+        public Hasher putInt(int i) {
+            ensureCapacity(4);
+            for (int j = 0; j < 4; j++) {
+                bytes[size++] = (byte) (i >>> (8 * j));
+            }
+            return this;
+        }
+
+        public Hasher putLong(long l) {
+            ensureCapacity(8);
+            for (int j = 0; j < 8; j++) {
+                bytes[size++] = (byte) (l >>> (8 * j));
+            }
+            return this;
+        }
+
+        public Hasher putBytes(byte[] b) {
+            putInt(b.length);
+            ensureCapacity(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+            return this;
+        }
+
+        public Hasher putString(String s) {
+            return putBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public Hasher putFingerprint(Fingerprint fingerprint) {
+            return putLong(fingerprint.high).putLong(fingerprint.low);
+        }
+
+        private void ensureCapacity(int n) {
+            if (size + n > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + n, 2 * bytes.length));
+            }
+        }
+
+        public Fingerprint hash() {
+            long h1 = 0;
+            long h2 = 0;
+
+            int blocks = size >>> 4;
+            for (int i = 0; i < blocks; i++) {
+                long k1 = getLong(16 * i);
+                long k2 = getLong(16 * i + 8);
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = 16 * blocks, j = 0; i < size; i++, j++) {
+                if (j < 8) {
+                    k1 ^= (bytes[i] & 0xffL) << (8 * j);
+                } else {
+                    k2 ^= (bytes[i] & 0xffL) << (8 * (j - 8));
+                }
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+
+            h1 ^= size;
+            h2 ^= size;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+            return new Fingerprint(h1, h2);
+        }
+
+        private long getLong(int i) {
+            long l = 0;
+            for (int j = 7; j >= 0; j--) {
+                l = (l << 8) | (bytes[i + j] & 0xffL);
+            }
+            return l;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
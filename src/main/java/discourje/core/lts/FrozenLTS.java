@@ -0,0 +1,288 @@
+package discourje.core.lts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, array-backed form of a fully expanded {@link LTS}, obtained through {@link LTS#freeze()}. States are
+ * numbered 0, 1, 2, ... (the identifiers of the original states), actions are numbered as in the {@link ActionTable}
+ * of the original LTS, and transitions are stored in compressed-sparse-row form: the outgoing transitions of state s
+ * are at indices forwardOffsets[s] (inclusive) to forwardOffsets[s + 1] (exclusive) of forwardActions and
+ * forwardTargets; the incoming transitions are stored likewise in the backward arrays.
+ * <p>
+ * A frozen LTS can be written to and read from a compact binary file (see {@link #write(Path, Function)}). Predicates
+ * of actions are code, so they are written as keys chosen by the caller, and resolved again by the caller on read.
+ */
+public class FrozenLTS {
+
+    private static final int MAGIC = 0x44434A4C;
+
+    private static final int VERSION = 1;
+
+    private final Action[] actions;
+
+    private final int[] initialStates;
+
+    private final int[] forwardOffsets;
+
+    private final int[] forwardActions;
+
+    private final int[] forwardTargets;
+
+    private final int[] backwardOffsets;
+
+    private final int[] backwardActions;
+
+    private final int[] backwardSources;
+
+    FrozenLTS(Action[] actions, int[] initialStates,
+              int[] forwardOffsets, int[] forwardActions, int[] forwardTargets) {
+
+        this.actions = actions;
+        this.initialStates = initialStates;
+        this.forwardOffsets = forwardOffsets;
+        this.forwardActions = forwardActions;
+        this.forwardTargets = forwardTargets;
+
+        var n = forwardOffsets.length - 1;
+        var m = forwardTargets.length;
+
+        this.backwardOffsets = new int[n + 1];
+        this.backwardActions = new int[m];
+        this.backwardSources = new int[m];
+
+        for (int i = 0; i < m; i++) {
+            backwardOffsets[forwardTargets[i] + 1]++;
+        }
+        for (int t = 0; t < n; t++) {
+            backwardOffsets[t + 1] += backwardOffsets[t];
+        }
+
+        var next = Arrays.copyOf(backwardOffsets, n);
+        for (int s = 0; s < n; s++) {
+            for (int i = forwardOffsets[s]; i < forwardOffsets[s + 1]; i++) {
+                var j = next[forwardTargets[i]]++;
+                backwardActions[j] = forwardActions[i];
+                backwardSources[j] = s;
+            }
+        }
+    }
+
+    static <Spec> FrozenLTS of(LTS<Spec> lts) {
+        var states = new ArrayList<>(lts.getStates());
+        states.sort(Comparator.comparingInt(State::getIdentifier));
+
+        var n = states.size();
+        var forwardOffsets = new int[n + 1];
+
+        for (int s = 0; s < n; s++) {
+            var state = states.get(s);
+            if (state.getIdentifier() != s) {
+                throw new IllegalStateException();
+            }
+
+            var transitions = state.getTransitionsOrNull();
+            if (transitions == null) {
+                throw new IllegalStateException("State " + s + " not yet expanded");
+            }
+
+            forwardOffsets[s + 1] = forwardOffsets[s] + transitions.size();
+        }
+
+        var forwardActions = new int[forwardOffsets[n]];
+        var forwardTargets = new int[forwardOffsets[n]];
+
+        var i = 0;
+        for (State<Spec> state : states) {
+            for (Map.Entry<Action, Set<State<Spec>>> e : state.getTransitionsOrNull().getTargetsByAction().entrySet()) {
+                var a = e.getKey().getId();
+                for (State<Spec> target : e.getValue()) {
+                    forwardActions[i] = a;
+                    forwardTargets[i] = target.getIdentifier();
+                    i++;
+                }
+            }
+        }
+
+        var initialStates = lts.getInitialStates().stream()
+                .mapToInt(State::getIdentifier)
+                .toArray();
+
+        return new FrozenLTS(lts.getActions().toArray(new Action[0]), initialStates,
+                forwardOffsets, forwardActions, forwardTargets);
+    }
+
+    /**
+     * Reads a frozen LTS from a binary file, written by {@link #write(Path, Function)}, through a memory mapping.
+     *
+     * @param predicates resolves the key of a predicate (as written) to the predicate
+     */
+    public static FrozenLTS read(Path path, Function<String, Predicate<Object>> predicates) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a binary LTS (version " + VERSION + "): " + path);
+            }
+
+            var n = buffer.getInt();
+            var m = buffer.getInt();
+            var numberOfActions = buffer.getInt();
+            var numberOfInitialStates = buffer.getInt();
+
+            var types = Action.Type.values();
+            var actions = new Action[numberOfActions];
+            for (int a = 0; a < numberOfActions; a++) {
+                var type = buffer.get();
+                var name = readString(buffer);
+                var sender = readString(buffer);
+                var receiver = readString(buffer);
+                var predicate = predicates.apply(readString(buffer));
+                actions[a] = new Action(name, type == -1 ? null : types[type], predicate, sender, receiver);
+            }
+
+            var ints = buffer.asIntBuffer();
+            var initialStates = new int[numberOfInitialStates];
+            var forwardOffsets = new int[n + 1];
+            var forwardActions = new int[m];
+            var forwardTargets = new int[m];
+            ints.get(initialStates).get(forwardOffsets).get(forwardActions).get(forwardTargets);
+
+            return new FrozenLTS(actions, initialStates, forwardOffsets, forwardActions, forwardTargets);
+        }
+    }
+
+    /**
+     * Writes this frozen LTS to a binary file. The file is written under a temporary name first, and then moved, so
+     * concurrent readers never see a partial file.
+     *
+     * @param predicates maps every action to a key from which its predicate can be resolved on read
+     */
+    public void write(Path path, Function<Action, String> predicates) throws IOException {
+        var strings = new ArrayList<byte[]>();
+        var size = 6 * Integer.BYTES;
+        for (Action a : actions) {
+            for (String string : new String[]{a.getName(), a.getSender(), a.getReceiver(), predicates.apply(a)}) {
+                var bytes = string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                size += Integer.BYTES + (bytes == null ? 0 : bytes.length);
+            }
+            size += 1;
+        }
+        size += Integer.BYTES * (initialStates.length + forwardOffsets.length + 2 * forwardTargets.length);
+
+        var buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putInt(numberOfStates()).putInt(numberOfTransitions()).putInt(actions.length).putInt(initialStates.length);
+        var i = 0;
+        for (Action a : actions) {
+            buffer.put(a.getType() == null ? -1 : (byte) a.getType().ordinal());
+            for (int j = 0; j < 4; j++) {
+                var bytes = strings.get(i++);
+                buffer.putInt(bytes == null ? -1 : bytes.length);
+                if (bytes != null) {
+                    buffer.put(bytes);
+                }
+            }
+        }
+        var ints = buffer.asIntBuffer();
+        ints.put(initialStates).put(forwardOffsets).put(forwardActions).put(forwardTargets);
+        buffer.rewind();
+
+        var tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Returns an {@link LTS} with the states and transitions of this frozen LTS, in which state s has spec s.
+     */
+    public LTS<Integer> thaw() {
+        return new LTS<>(Arrays.stream(initialStates).boxed().collect(Collectors.toList()), s -> {
+            var expansion = new LinkedHashMap<Action, Collection<Integer>>();
+            for (int i = forwardOffsets[s]; i < forwardOffsets[s + 1]; i++) {
+                expansion.computeIfAbsent(actions[forwardActions[i]], k -> new LinkedHashSet<>()).add(forwardTargets[i]);
+            }
+            return expansion;
+        });
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        var length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int numberOfStates() {
+        return forwardOffsets.length - 1;
+    }
+
+    public int numberOfTransitions() {
+        return forwardTargets.length;
+    }
+
+    public int numberOfActions() {
+        return actions.length;
+    }
+
+    public Action getAction(int a) {
+        return actions[a];
+    }
+
+    public int[] getInitialStates() {
+        return initialStates.clone();
+    }
+
+    public int getForwardOffset(int s) {
+        return forwardOffsets[s];
+    }
+
+    public int getForwardAction(int i) {
+        return forwardActions[i];
+    }
+
+    public int getForwardTarget(int i) {
+        return forwardTargets[i];
+    }
+
+    public int getBackwardOffset(int t) {
+        return backwardOffsets[t];
+    }
+
+    public int getBackwardAction(int i) {
+        return backwardActions[i];
+    }
+
+    public int getBackwardSource(int i) {
+        return backwardSources[i];
+    }
+
+    public int outDegree(int s) {
+        return forwardOffsets[s + 1] - forwardOffsets[s];
+    }
+
+    public int inDegree(int t) {
+        return backwardOffsets[t + 1] - backwardOffsets[t];
+    }
+}
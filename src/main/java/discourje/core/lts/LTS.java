@@ -1,22 +1,117 @@
 package discourje.core.lts;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
-public class LTS<Spec> {
+public class LTS<Spec> implements AutoCloseable {
 
-    private Map<Spec, State<Spec>> states = new ConcurrentHashMap<>();
+    private static final int STORED_TRANSITIONS_CAPACITY = 1 << 16;
+
+    /**
+     * Maximal number of memoized state sets (see {@link #getStateSet(Collection)})
+     */
+    static final int STATE_SETS_CAPACITY = 1 << 16;
+
+    /**
+     * Closes the stores of LTSs that become unreachable without being closed
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private Map<Object, State<Spec>> states = new ConcurrentHashMap<>();
 
     private Collection<State<Spec>> initialStates;
 
     private AtomicInteger size = new AtomicInteger(0);
 
+    /**
+     * Identifiers of evicted states, which new states reuse (see {@link #evict(int, Supplier)})
+     */
+    private Queue<Integer> freeIdentifiers = new ConcurrentLinkedQueue<>();
+
+    private ActionTable actions = new ActionTable();
+
+    private Map<Set<State<Spec>>, StateSet<Spec>> stateSets = new ConcurrentHashMap<>();
+
+    /**
+     * Logical clock that orders visits of state sets (see {@link #evict(int, Supplier)})
+     */
+    private AtomicLong clock = new AtomicLong(0);
+
+    /**
+     * Excludes eviction from expansion: expansions (and steps of state sets) hold the read lock, so they run
+     * concurrently with each other, and eviction holds the write lock (see {@link #evict(int, Supplier)})
+     */
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean evicted = false;
+
     private Function<Spec, Map<Action, Collection<Spec>>> expander;
 
+    private Function<Spec, Fingerprint> fingerprint;
+
+    private SpillingStateStore<Spec> store;
+
+    private Cleaner.Cleanable cleanable;
+
+    /**
+     * Recently read transitions of stored states (cleared when full)
+     */
+    private Map<Integer, Transitions<Spec>> storedTransitions = new ConcurrentHashMap<>();
+
     public LTS(Collection<Spec> initialStateSpecs, Function<Spec, Map<Action, Collection<Spec>>> expander) {
+        this(initialStateSpecs, expander, null);
+    }
+
+    /**
+     * Constructs an LTS whose states are identified by the fingerprints of their specs, if a fingerprint function is
+     * given. A state then keeps its spec only until it is expanded (afterwards, {@link State#getSpec()} returns null),
+     * so only the specs of the frontier are retained.
+     */
+    public LTS(Collection<Spec> initialStateSpecs, Function<Spec, Map<Action, Collection<Spec>>> expander,
+               Function<Spec, Fingerprint> fingerprint) {
+
+        this(initialStateSpecs, expander, fingerprint, null);
+    }
+
+    /**
+     * Constructs an LTS whose states are identified by the fingerprints of their specs, and whose transitions are
+     * spilled to the given file (see {@link SpillingStateStore}), if a file is given. Only a compact index of states,
+     * and the specs of the frontier, stay on the heap; states are handles that read their transitions from the file
+     * (recently read transitions are cached). The file is deleted when this LTS is closed, or else when it becomes
+     * unreachable.
+     */
+    public LTS(Collection<Spec> initialStateSpecs, Function<Spec, Map<Action, Collection<Spec>>> expander,
+               Function<Spec, Fingerprint> fingerprint, Path spill) {
+
+        if (spill != null) {
+            if (fingerprint == null) {
+                throw new IllegalArgumentException("Spilling requires fingerprints");
+            }
+            try {
+                this.store = new SpillingStateStore<>(spill);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.cleanable = CLEANER.register(this, store::close);
+        }
+
+        this.fingerprint = fingerprint;
         this.initialStates = new LinkedHashSet<>();
         for (Spec initialStateSpec : initialStateSpecs) {
             this.initialStates.add(newOrGetState(initialStateSpec));
@@ -25,6 +120,17 @@ public class LTS<Spec> {
         this.expander = expander;
     }
 
+    /**
+     * Releases the resources of this LTS: if its transitions are spilled, the file is closed and deleted, after which
+     * stored states can no longer be read.
+     */
+    @Override
+    public void close() {
+        if (cleanable != null) {
+            cleanable.clean();
+        }
+    }
+
     @Override
     public String toString() {
         return LTSs.toAldebaran(this);
@@ -35,16 +141,170 @@ public class LTS<Spec> {
     }
 
     public void expandRecursively(int bound) {
-        for (State<Spec> s : states.values()) {
+        for (State<Spec> s : getStates()) {
             s.expandRecursively(bound);
         }
     }
 
-    public Collection<Action> getActions() {
-        var actions = new LinkedHashSet<Action>();
+    public void expandRecursively(ForkJoinPool pool) {
+        expandRecursively(Integer.MAX_VALUE, pool);
+    }
+
+    /**
+     * Expands the states of this LTS in parallel on the given pool. Workers reach states in an order that differs from
+     * run to run, so states are renumbered afterwards (see {@link #renumber()}); their identifiers are then the same
+     * in every run.
+     */
+    public void expandRecursively(int bound, ForkJoinPool pool) {
+        var sources = new ArrayList<>(getStates());
+        var expanded = new AtomicBoolean(false);
+        pool.invoke(new CountedCompleter<Void>() {
+            @Override
+            public void compute() {
+                for (State<Spec> s : sources) {
+                    addToPendingCount(1);
+                    new ExpandTask(this, (AbstractState) s, bound, expanded).fork();
+                }
+                tryComplete();
+            }
+        });
+        if (expanded.get()) {
+            renumber();
+        }
+    }
+
+    /**
+     * Renumbers the states of this LTS 0, 1, 2, ... in breadth-first order from the initial states, visiting the
+     * targets of a state in the order of its transitions (which is the order in which the expander returned them). The
+     * identifiers then depend only on the specs, not on the order in which states were created. States of a spilling
+     * store keep their identifiers, which are their positions in the store.
+     */
+    private void renumber() {
+        if (store != null) {
+            return;
+        }
+
+        var visited = new HashSet<State<Spec>>(initialStates);
+        var queue = new ArrayDeque<State<Spec>>(initialStates);
+        var next = 0;
+        while (!queue.isEmpty()) {
+            var s = (SpecState) queue.poll();
+            s.identifier = next++;
+            var transitions = s.getTransitionsOrNull();
+            if (transitions != null) {
+                for (State<Spec> target : transitions.getTargets()) {
+                    if (visited.add(target)) {
+                        queue.add(target);
+                    }
+                }
+            }
+        }
+
+        // States that are not reachable through transitions (e.g., targets of states collapsed by eviction) come last
+        var unreachable = new ArrayList<SpecState>();
         for (State<Spec> s : states.values()) {
-            actions.addAll(s.getTransitionsOrNull().getActions());
+            if (!visited.contains(s)) {
+                unreachable.add((SpecState) s);
+            }
+        }
+        unreachable.sort(Comparator.comparingInt(SpecState::getIdentifier));
+        for (SpecState s : unreachable) {
+            s.identifier = next++;
         }
+
+        freeIdentifiers.clear();
+        size.set(next);
+    }
+
+    public Exploration.Outcome expand(Exploration exploration) {
+        var frontier = new ArrayDeque<AbstractState>();
+        for (State<Spec> s : getStates()) {
+            if (!((AbstractState) s).isExpanded()) {
+                frontier.add((AbstractState) s);
+            }
+        }
+
+        var listener = exploration.getListenerOrNull();
+        var interval = exploration.getInterval() * 1_000_000;
+        var begin = System.nanoTime();
+        var last = begin;
+        var expanded = 0;
+
+        var outcome = Exploration.Outcome.COMPLETED;
+        while (!frontier.isEmpty()) {
+            if (exploration.isCancelled()) {
+                outcome = Exploration.Outcome.CANCELLED;
+                break;
+            }
+            if (numberOfStates() >= exploration.getBudget()) {
+                outcome = Exploration.Outcome.BUDGET_EXHAUSTED;
+                break;
+            }
+
+            var s = exploration.getOrder() == Exploration.Order.BREADTH_FIRST
+                    ? frontier.pollFirst()
+                    : frontier.pollLast();
+
+            if (s.expandOnce()) {
+                expanded++;
+                for (State<Spec> target : s.getTransitionsOrNull().getTargets()) {
+                    if (!((AbstractState) target).isExpanded()) {
+                        frontier.add((AbstractState) target);
+                    }
+                }
+            }
+
+            if (listener != null) {
+                var now = System.nanoTime();
+                if (now - last >= interval) {
+                    listener.progress(numberOfStates(), expanded, frontier.size(), expanded / Math.max((now - begin) / 1e9, 1e-9));
+                    last = now;
+                }
+            }
+        }
+
+        if (listener != null) {
+            var now = System.nanoTime();
+            listener.progress(numberOfStates(), expanded, frontier.size(), expanded / Math.max((now - begin) / 1e9, 1e-9));
+        }
+
+        return outcome;
+    }
+
+    /**
+     * Returns an immutable, array-backed copy of this LTS. Every state must have been expanded.
+     */
+    public FrozenLTS freeze() {
+        return FrozenLTS.of(this);
+    }
+
+    /**
+     * Returns the actions of this LTS. Once states are evicted, these are the actions of the transitions of the
+     * remaining states (the action table still has the actions of evicted states, so their identifiers stay valid).
+     */
+    public Collection<Action> getActions() {
+        if (!evicted) {
+            return actions.getActions();
+        }
+
+        lock.readLock().lock();
+        try {
+            var result = new TreeMap<Integer, Action>();
+            for (State<Spec> s : states.values()) {
+                var transitions = s.getTransitionsOrNull();
+                if (transitions != null) {
+                    for (Action a : transitions.getActions()) {
+                        result.put(a.getId(), a);
+                    }
+                }
+            }
+            return Collections.unmodifiableCollection(new ArrayList<>(result.values()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public ActionTable getActionTable() {
         return actions;
     }
 
@@ -53,24 +313,304 @@ public class LTS<Spec> {
     }
 
     public Collection<State<Spec>> getStates() {
-        return states.values();
+        if (store == null) {
+            return states.values();
+        }
+
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<State<Spec>> iterator() {
+                return new Iterator<>() {
+                    private int id = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return id < store.size();
+                    }
+
+                    @Override
+                    public State<Spec> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return new StoredState(id++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the canonical {@link StateSet} that contains exactly the given states of this LTS.
+     * <p>
+     * State sets, and their successor sets, are memoized (on-the-fly subset construction). The memo is bounded: when
+     * it is full, the least recently visited half of the state sets is forgotten, as are the successor sets of the
+     * others (which may refer to forgotten ones). A forgotten state set still works, but it is no longer canonical:
+     * an equal state set that is requested afterwards is another instance.
+     */
+    public StateSet<Spec> getStateSet(Collection<State<Spec>> states) {
+        var set = states instanceof Set ? (Set<State<Spec>>) states : new LinkedHashSet<>(states);
+        var stateSet = stateSets.get(set);
+        if (stateSet == null) {
+            if (stateSets.size() >= STATE_SETS_CAPACITY) {
+                trimStateSets();
+            }
+            var copy = Collections.unmodifiableSet(new LinkedHashSet<>(set));
+            stateSet = stateSets.computeIfAbsent(copy, k -> new StateSet<>(this, k));
+        }
+        return stateSet;
+    }
+
+    int numberOfStateSets() {
+        return stateSets.size();
+    }
+
+    private void trimStateSets() {
+        synchronized (stateSets) {
+            if (stateSets.size() < STATE_SETS_CAPACITY) {
+                return;
+            }
+
+            var visits = new long[stateSets.size()];
+            var i = 0;
+            for (StateSet<Spec> set : stateSets.values()) {
+                if (i == visits.length) {
+                    break;
+                }
+                visits[i++] = set.getLastVisit();
+            }
+            Arrays.sort(visits, 0, i);
+            var threshold = visits[i / 2];
+
+            stateSets.values().removeIf(set -> set.getLastVisit() < threshold);
+            for (StateSet<Spec> set : stateSets.values()) {
+                set.clearSteps();
+            }
+        }
+    }
+
+    /**
+     * Returns true if the states of this LTS drop their specs once expanded (see
+     * {@link #LTS(Collection, Function, Function)}).
+     */
+    public boolean dropsSpecs() {
+        return fingerprint != null;
+    }
+
+    long tick() {
+        return clock.incrementAndGet();
+    }
+
+    Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Returns the value of the given supplier, computed while no states are evicted (see
+     * {@link #evict(int, Supplier)}). A monitor performs a step and publishes its target states in one such call, so
+     * the target states are either published before an eviction (and then live) or computed after it.
+     */
+    public <T> T withoutEviction(Supplier<T> supplier) {
+        lock.readLock().lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Evicts states, if this LTS has more than capacity states, until it has at most half of capacity. The states of
+     * the live state sets (e.g., the current state sets of monitors), the initial states, and the states of the most
+     * recently visited state sets are retained; the others are forgotten. Retained states whose targets are forgotten
+     * are collapsed (they forget their transitions), and they are expanded again on demand.
+     * <p>
+     * Eviction is meant for LTSs that are expanded on the fly by monitors: the identifiers of forgotten states are
+     * reused by new states (so identifiers stay below the largest number of states the LTS ever had, but a state that
+     * is created again may get another identifier), so an LTS with evicted states cannot be frozen. It requires that
+     * states keep their specs. Returns true if states were evicted.
+     * <p>
+     * Eviction excludes expansion: it waits until running expansions (and calls of {@link #withoutEviction(Supplier)})
+     * are done, and the live state sets are computed by the given supplier only then, so they cannot be outdated by a
+     * concurrent step. The live state sets must be those of all monitors of this LTS.
+     */
+    public boolean evict(int capacity, Supplier<? extends Collection<? extends Collection<State<Spec>>>> live) {
+        if (states.size() <= capacity) {
+            return false;
+        }
+        if (fingerprint != null) {
+            throw new IllegalStateException("Cannot evict states of an LTS that drops the specs of its states");
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (states.size() <= capacity) {
+                return false;
+            }
+
+            var liveSets = live.get();
+            var retained = new HashSet<State<Spec>>(initialStates);
+            for (Collection<State<Spec>> c : liveSets) {
+                retained.addAll(c);
+            }
+
+            var sets = new ArrayList<>(stateSets.values());
+            sets.sort(Comparator.comparingLong(StateSet<Spec>::getLastVisit).reversed());
+            var retainedSets = new HashSet<StateSet<Spec>>();
+            for (StateSet<Spec> set : sets) {
+                if (retained.size() + set.size() > capacity / 2) {
+                    break;
+                }
+                retained.addAll(set);
+                retainedSets.add(set);
+            }
+
+            // Keep the targets of retained states, collapsed, so no retained state refers to a forgotten state
+            var kept = new HashSet<>(retained);
+            for (State<Spec> s : retained) {
+                var transitions = s.getTransitionsOrNull();
+                if (transitions != null) {
+                    kept.addAll(transitions.getTargets());
+                }
+            }
+
+            for (Iterator<State<Spec>> i = states.values().iterator(); i.hasNext(); ) {
+                var s = (SpecState) i.next();
+                if (!retained.contains(s)) {
+                    s.collapse();
+                    if (!kept.contains(s)) {
+                        i.remove();
+                        freeIdentifiers.add(s.identifier);
+                    }
+                }
+            }
+
+            for (Iterator<StateSet<Spec>> i = stateSets.values().iterator(); i.hasNext(); ) {
+                var set = i.next();
+                set.clearSteps();
+                if (!retainedSets.contains(set) && !liveSets.contains(set)) {
+                    i.remove();
+                }
+            }
+            evicted = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    private int numberOfStates() {
+        return store == null ? size.get() : store.size();
     }
 
     private State<Spec> newOrGetState(Spec spec) {
-        return states.computeIfAbsent(spec, SpecState::new);
+        if (store != null) {
+            return new StoredState(store.getOrAdd(fingerprint.apply(spec), spec));
+        }
+
+        var key = fingerprint == null ? spec : fingerprint.apply(spec);
+        return states.computeIfAbsent(key, k -> new SpecState(k, spec));
+    }
+
+    /**
+     * Expands a state and forks one subtask per unexpanded target, so idle workers of the pool can steal parts of the
+     * frontier. Subtasks are never joined (completion propagates to the parent instead), so the stack does not grow
+     * with the depth of the LTS. Only the task that installs the transitions of a state proceeds to its targets.
+     */
+    private class ExpandTask extends CountedCompleter<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private AbstractState state;
+
+        private int bound;
+
+        private AtomicBoolean expanded;
+
+        private ExpandTask(CountedCompleter<?> parent, AbstractState state, int bound, AtomicBoolean expanded) {
+            super(parent);
+            this.state = state;
+            this.bound = bound;
+            this.expanded = expanded;
+        }
+
+        @Override
+        public void compute() {
+            if (bound > 0 && state.expandOnce()) {
+                expanded.lazySet(true);
+                if (bound > 1) {
+                    for (State<Spec> target : state.getTransitionsOrNull().getTargets()) {
+                        if (!((AbstractState) target).isExpanded()) {
+                            addToPendingCount(1);
+                            new ExpandTask(this, (AbstractState) target, bound - 1, expanded).fork();
+                        }
+                    }
+                }
+            }
+            tryComplete();
+        }
     }
 
-    private class SpecState implements State<Spec> {
+    /**
+     * State that can be expanded once, by the expander of this LTS.
+     */
+    private abstract class AbstractState implements State<Spec> {
+
+        abstract boolean isExpanded();
 
-        private Spec spec;
+        /**
+         * Expands this state, and returns true if this call installed its transitions.
+         */
+        abstract boolean expandOnce();
+
+        @Override
+        public void expandRecursively(int bound) {
+            if (isExpanded()) {
+                return;
+            }
+
+            List<AbstractState> frontier = Collections.singletonList(this);
+            for (int i = 0; i < bound && !frontier.isEmpty(); i++) {
+                var frontier$prime = new ArrayList<AbstractState>();
+                for (AbstractState s : frontier) {
+                    if (s.expandOnce()) {
+                        for (State<Spec> target : s.getTransitionsOrNull().getTargets()) {
+                            if (!((AbstractState) target).isExpanded()) {
+                                frontier$prime.add((AbstractState) target);
+                            }
+                        }
+                    }
+                }
+                frontier = frontier$prime;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getIdentifier());
+        }
+    }
+
+    private class SpecState extends AbstractState {
+
+        private final Object key;
+
+        private volatile Spec spec;
 
         private int identifier;
 
         private AtomicReference<Transitions<Spec>> transitions = new AtomicReference<>(null);
 
-        private SpecState(Spec spec) {
+        private SpecState(Object key, Spec spec) {
+            this.key = key;
             this.spec = spec;
-            this.identifier = size.getAndIncrement();
+            var free = freeIdentifiers.poll();
+            this.identifier = free == null ? size.getAndIncrement() : free;
         }
 
         @Override
@@ -79,40 +619,53 @@ public class LTS<Spec> {
             if (o == null || getClass() != o.getClass()) return false;
             @SuppressWarnings("unchecked")
             SpecState state = (SpecState) o;
-            return Objects.equals(spec, state.spec);
+            return Objects.equals(key, state.key);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(spec);
+            return Objects.hash(key);
         }
 
         @Override
-        public String toString() {
-            return Integer.toString(identifier);
+        boolean isExpanded() {
+            return transitions.get() != null;
+        }
+
+        private void collapse() {
+            transitions.set(null);
         }
 
         @Override
-        public void expandRecursively(int bound) {
-            if (bound > 0 && transitions.get() == null) {
-                var expansion = new Transitions<Spec>();
+        boolean expandOnce() {
+            var spec = this.spec;
+            if (transitions.get() != null || spec == null) {
+                return false;
+            }
+
+            // Targets are created and installed while no states are evicted, so no target is forgotten meanwhile
+            lock.readLock().lock();
+            try {
+                var expansion = new Transitions<Spec>(actions);
                 var targetSpecs = expander.apply(spec);
                 for (Map.Entry<Action, Collection<Spec>> e : targetSpecs.entrySet()) {
-                    var a = e.getKey();
+                    var a = actions.intern(e.getKey());
                     for (Spec targetSpec : e.getValue()) {
                         var target = newOrGetState(targetSpec);
                         expansion.addTarget(a, target);
                     }
                 }
 
-                transitions.compareAndSet(null, expansion);
-
-                if (bound > 1) {
-                    for (State<Spec> target : transitions.get().getTargets()) {
-                        target.expandRecursively(bound - 1);
-                    }
+                if (!transitions.compareAndSet(null, expansion)) {
+                    return false;
                 }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (fingerprint != null) {
+                this.spec = null;
             }
+            return true;
         }
 
         @Override
@@ -130,4 +683,102 @@ public class LTS<Spec> {
             return transitions.get();
         }
     }
+
+    /**
+     * Handle of a state in the spilling store of this LTS. Handles hold only an identifier, so they are created on
+     * demand, and equal iff their identifiers are equal.
+     */
+    private class StoredState extends AbstractState {
+
+        private final int identifier;
+
+        private StoredState(int identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            @SuppressWarnings("unchecked")
+            StoredState state = (StoredState) o;
+            return identifier == state.identifier && getLTS() == state.getLTS();
+        }
+
+        @Override
+        public int hashCode() {
+            return identifier;
+        }
+
+        private LTS<Spec> getLTS() {
+            return LTS.this;
+        }
+
+        @Override
+        boolean isExpanded() {
+            return store.isExpanded(identifier);
+        }
+
+        @Override
+        boolean expandOnce() {
+            var spec = store.getSpec(identifier);
+            if (spec == null || store.isExpanded(identifier)) {
+                return false;
+            }
+
+            var targetSpecs = expander.apply(spec);
+            var n = 0;
+            for (Collection<Spec> c : targetSpecs.values()) {
+                n += c.size();
+            }
+
+            var actionIds = new int[n];
+            var targetIds = new int[n];
+            var i = 0;
+            for (Map.Entry<Action, Collection<Spec>> e : targetSpecs.entrySet()) {
+                var a = actions.intern(e.getKey()).getId();
+                for (Spec targetSpec : e.getValue()) {
+                    actionIds[i] = a;
+                    targetIds[i] = newOrGetState(targetSpec).getIdentifier();
+                    i++;
+                }
+            }
+
+            return store.putTransitions(identifier, actionIds, targetIds);
+        }
+
+        @Override
+        public int getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public Spec getSpec() {
+            return store.getSpec(identifier);
+        }
+
+        @Override
+        public Transitions<Spec> getTransitionsOrNull() {
+            var transitions = storedTransitions.get(identifier);
+            if (transitions != null) {
+                return transitions;
+            }
+
+            var pairs = store.getTransitionsOrNull(identifier);
+            if (pairs == null) {
+                return null;
+            }
+
+            transitions = new Transitions<>(actions);
+            for (int j = 0; j < pairs.length; j += 2) {
+                transitions.addTarget(actions.get(pairs[j]), new StoredState(pairs[j + 1]));
+            }
+
+            if (storedTransitions.size() >= STORED_TRANSITIONS_CAPACITY) {
+                storedTransitions.clear();
+            }
+            storedTransitions.put(identifier, transitions);
+            return transitions;
+        }
+    }
 }
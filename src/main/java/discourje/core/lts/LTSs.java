@@ -1,133 +1,156 @@
 package discourje.core.lts;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.function.BooleanSupplier;
-import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
 
 public class LTSs {
 
     public static boolean bisimilar(LTS<?> lts1, LTS<?> lts2) {
+        return bisimilar(lts1, lts2, null);
+    }
+
+    /**
+     * Checks if the initial states of two LTSs are strongly bisimilar, by partition refinement (see
+     * {@link PartitionRefinement}) on the disjoint union of their frozen forms. Actions of the two LTSs are matched by
+     * equality. If a pool is given, signatures are computed on it.
+     */
+    public static boolean bisimilar(LTS<?> lts1, LTS<?> lts2, ForkJoinPool pool) {
         lts1.expandRecursively();
         lts2.expandRecursively();
 
-        var states = new LinkedHashSet<State<?>>();
-        states.addAll(lts1.getStates());
-        states.addAll(lts2.getStates());
+        var frozen1 = lts1.freeze();
+        var frozen2 = lts2.freeze();
+        var n1 = frozen1.numberOfStates();
+        var n2 = frozen2.numberOfStates();
+        var m1 = frozen1.numberOfTransitions();
+        var m2 = frozen2.numberOfTransitions();
+
+        var actions = new HashMap<Action, Integer>();
+        var actions1 = new int[frozen1.numberOfActions()];
+        for (int a = 0; a < actions1.length; a++) {
+            actions1[a] = actions.computeIfAbsent(frozen1.getAction(a), k -> actions.size());
+        }
+        var actions2 = new int[frozen2.numberOfActions()];
+        for (int a = 0; a < actions2.length; a++) {
+            actions2[a] = actions.computeIfAbsent(frozen2.getAction(a), k -> actions.size());
+        }
 
-        var actions = new HashSet<Action>();
-        actions.addAll(lts1.getActions());
-        actions.addAll(lts2.getActions());
+        var forwardOffsets = new int[n1 + n2 + 1];
+        var forwardActions = new int[m1 + m2];
+        var forwardTargets = new int[m1 + m2];
+        for (int s = 0; s < n1; s++) {
+            forwardOffsets[s + 1] = frozen1.getForwardOffset(s + 1);
+        }
+        for (int s = 0; s < n2; s++) {
+            forwardOffsets[n1 + s + 1] = m1 + frozen2.getForwardOffset(s + 1);
+        }
+        for (int i = 0; i < m1; i++) {
+            forwardActions[i] = actions1[frozen1.getForwardAction(i)];
+            forwardTargets[i] = frozen1.getForwardTarget(i);
+        }
+        for (int i = 0; i < m2; i++) {
+            forwardActions[m1 + i] = actions2[frozen2.getForwardAction(i)];
+            forwardTargets[m1 + i] = n1 + frozen2.getForwardTarget(i);
+        }
 
-        var partition = new HashSet<Set<State<?>>>();
-        partition.add(states);
+        var block = new PartitionRefinement(forwardOffsets, forwardActions, forwardTargets).refine(pool);
 
-        while (true) {
-            var partition$prime = new HashSet<Set<State<?>>>();
+        for (int initialState1 : frozen1.getInitialStates()) {
+            for (int initialState2 : frozen2.getInitialStates()) {
+                if (block[initialState1] != block[n1 + initialState2]) {
+                    return false;
+                }
+            }
+        }
 
-            for (Set<State<?>> block : partition) {
-                var intersection = new HashSet<State<?>>();
-                var complement = new HashSet<State<?>>();
-                BooleanSupplier isSplit = () -> !intersection.isEmpty() && !complement.isEmpty();
+        return true;
+    }
 
-                for (Set<State<?>> splitter : partition) {
-                    for (Action a : actions) {
-                        intersection.clear();
-                        complement.clear();
+    public static <Spec> Quotient<Spec> minimize(LTS<Spec> lts) {
+        return minimize(lts, null);
+    }
 
-                        for (State<?> s : block) {
-                            var targets = s.getTransitionsOrNull().getTargetsOrNull(a);
-                            if (targets != null && splitter.containsAll(targets)) {
-                                intersection.add(s);
-                            } else {
-                                complement.add(s);
-                            }
-                        }
+    /**
+     * Computes the quotient of an LTS under strong bisimulation. The quotient is itself an {@link LTS}, fully
+     * expanded, with one state per block; the spec of a block is the spec of its first state. If a pool is given,
+     * signatures are computed on it. The LTS must keep the specs of its states.
+     */
+    public static <Spec> Quotient<Spec> minimize(LTS<Spec> lts, ForkJoinPool pool) {
+        if (lts.dropsSpecs()) {
+            throw new IllegalArgumentException("Cannot minimize an LTS that drops the specs of its states");
+        }
 
-                        if (isSplit.getAsBoolean()) break;
-                    }
+        lts.expandRecursively();
 
-                    if (isSplit.getAsBoolean()) break;
-                }
+        var frozen = lts.freeze();
+        var n = frozen.numberOfStates();
+        var m = frozen.numberOfTransitions();
 
-                if (!intersection.isEmpty()) {
-                    partition$prime.add(intersection);
-                }
-                if (!complement.isEmpty()) {
-                    partition$prime.add(complement);
-                }
-            }
+        var forwardOffsets = new int[n + 1];
+        var forwardActions = new int[m];
+        var forwardTargets = new int[m];
+        for (int s = 0; s < n; s++) {
+            forwardOffsets[s + 1] = frozen.getForwardOffset(s + 1);
+        }
+        for (int i = 0; i < m; i++) {
+            forwardActions[i] = frozen.getForwardAction(i);
+            forwardTargets[i] = frozen.getForwardTarget(i);
+        }
 
-            if (partition.equals(partition$prime)) {
-                break;
-            } else {
-                partition = partition$prime;
-            }
+        var block = new PartitionRefinement(forwardOffsets, forwardActions, forwardTargets).refine(pool);
+
+        var states = new ArrayList<>(lts.getStates());
+        states.sort(Comparator.comparingInt(State::getIdentifier));
+
+        var representatives = new HashMap<Integer, Spec>();
+        for (int s = 0; s < n; s++) {
+            representatives.putIfAbsent(block[s], states.get(s).getSpec());
         }
 
-        for (State<?> initialState1 : lts1.getInitialStates()) {
-            for (State<?> initialState2 : lts2.getInitialStates()) {
-                var b = false;
-                for (Set<State<?>> block : partition) {
-                    b = block.contains(initialState1) && block.contains(initialState2);
-                    if (b) break;
+        var expansions = new HashMap<Spec, Map<Action, Collection<Spec>>>();
+        for (int s = 0; s < n; s++) {
+            var spec = representatives.get(block[s]);
+            if (spec == states.get(s).getSpec()) {
+                var expansion = new LinkedHashMap<Action, Collection<Spec>>();
+                for (int i = frozen.getForwardOffset(s); i < frozen.getForwardOffset(s + 1); i++) {
+                    expansion.computeIfAbsent(frozen.getAction(frozen.getForwardAction(i)), k -> new LinkedHashSet<>())
+                            .add(representatives.get(block[frozen.getForwardTarget(i)]));
                 }
-                if (!b) return false;
+                expansions.put(spec, expansion);
             }
         }
 
-        return true;
-    }
+        var initialStateSpecs = new LinkedHashSet<Spec>();
+        for (int s : frozen.getInitialStates()) {
+            initialStateSpecs.add(representatives.get(block[s]));
+        }
 
-    public static String toAldebaran(LTS<?> lts) {
-        if (lts.getInitialStates().size() != 1) {
-            throw new IllegalArgumentException();
-        }
-
-        var initialState = lts.getInitialStates().iterator().next();
-        if (initialState.getIdentifier() != 0) {
-            throw new IllegalArgumentException();
-        }
-
-        Function<State<?>, String> stateToAldebaran = source -> {
-            var b = new StringBuilder();
-            var transitions = source.getTransitionsOrNull();
-            for (Action a : transitions.getActions()) {
-                for (State<?> target : transitions.getTargetsOrNull(a)) {
-                    b.append("(");
-                    b.append(source.getIdentifier());
-                    b.append(",");
-                    b.append("\"").append(a).append("\"");
-                    b.append(",");
-                    b.append(target.getIdentifier());
-                    b.append(")");
-                    b.append(System.lineSeparator());
-                }
-            }
-            b.deleteCharAt(b.length() - 1);
-            return b.toString();
-        };
+        var quotient = new LTS<>(initialStateSpecs, expansions::get);
+        quotient.expandRecursively();
 
-        var states = new ArrayList<>(lts.getStates());
-        states.sort(Comparator.comparingInt(State::getIdentifier));
+        var statesBySpec = new HashMap<Spec, State<Spec>>();
+        for (State<Spec> s : quotient.getStates()) {
+            statesBySpec.put(s.getSpec(), s);
+        }
 
-        var b = new StringBuilder();
-        var n = 0;
-        for (State<?> s : states) {
-            var transitions = s.getTransitionsOrNull();
-            n += transitions == null ? 0 : s.getTransitionsOrNull().size();
-        }
-        b.append("des (0,").append(n).append(",").append(states.size()).append(")");
-        for (State<?> s : states) {
-            var transitions = s.getTransitionsOrNull();
-            if (transitions == null) {
-                b.append(System.lineSeparator());
-                b.append("*** state ").append(s.getIdentifier()).append(" not yet expanded ***");
-            } else if (!transitions.isEmpty()) {
-                b.append(System.lineSeparator());
-                b.append(stateToAldebaran.apply(s));
-            }
+        var mapping = new LinkedHashMap<State<Spec>, State<Spec>>();
+        for (int s = 0; s < n; s++) {
+            mapping.put(states.get(s), statesBySpec.get(representatives.get(block[s])));
         }
 
-        return b.toString();
+        return new Quotient<>(quotient, mapping);
+    }
+
+    public static String toAldebaran(LTS<?> lts) {
+        var writer = new StringWriter();
+        try {
+            Aldebaran.write(lts, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
     }
 }
@@ -0,0 +1,349 @@
+package discourje.core.lts;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the coarsest strong bisimulation of an LTS in compressed-sparse-row form (see {@link FrozenLTS}), by
+ * signature-based partition refinement. The signature of a state is the set of (action, block of target) pairs of its
+ * transitions; blocks are split until all states in a block have the same signature.
+ * <p>
+ * Refinement is incremental: after a round, only predecessors of states that moved to a new block can have a new
+ * signature, so only those are recomputed. States that keep their signature stay in their block, and when all states
+ * of a block are recomputed, the largest group keeps the block. Partition bookkeeping follows the refinable-partition
+ * layout (one array of states, ordered by block, with a position per state), so moving a state costs O(1).
+ */
+class PartitionRefinement {
+
+    private final int n;
+
+    private final int[] forwardOffsets;
+
+    private final int[] forwardActions;
+
+    private final int[] forwardTargets;
+
+    private final int[] backwardOffsets;
+
+    private final int[] backwardSources;
+
+    private final int[] block;
+
+    private final int[] elements;
+
+    private final int[] positions;
+
+    private int[] blockStart;
+
+    private int[] blockEnd;
+
+    private int numberOfBlocks;
+
+    private int rounds;
+
+    private long dirtyCount;
+
+    PartitionRefinement(int[] forwardOffsets, int[] forwardActions, int[] forwardTargets) {
+        this.n = forwardOffsets.length - 1;
+        this.forwardOffsets = forwardOffsets;
+        this.forwardActions = forwardActions;
+        this.forwardTargets = forwardTargets;
+
+        var m = forwardTargets.length;
+        this.backwardOffsets = new int[n + 1];
+        this.backwardSources = new int[m];
+        for (int i = 0; i < m; i++) {
+            backwardOffsets[forwardTargets[i] + 1]++;
+        }
+        for (int t = 0; t < n; t++) {
+            backwardOffsets[t + 1] += backwardOffsets[t];
+        }
+        var next = Arrays.copyOf(backwardOffsets, n);
+        for (int s = 0; s < n; s++) {
+            for (int i = forwardOffsets[s]; i < forwardOffsets[s + 1]; i++) {
+                backwardSources[next[forwardTargets[i]]++] = s;
+            }
+        }
+
+        this.block = new int[n];
+        this.elements = new int[n];
+        this.positions = new int[n];
+        for (int s = 0; s < n; s++) {
+            elements[s] = s;
+            positions[s] = s;
+        }
+        this.blockStart = new int[]{0};
+        this.blockEnd = new int[]{n};
+        this.numberOfBlocks = n == 0 ? 0 : 1;
+    }
+
+    /**
+     * Refines the partition until it is stable, and returns the block of every state. If a pool is given, signatures
+     * are computed on it.
+     * <p>
+     * A round costs O(d log d + e), where d is the number of dirty states and e the number of their transitions: the
+     * storage of a round is sized to the dirty states, which are grouped by block and signature by one sort.
+     */
+    int[] refine(ForkJoinPool pool) {
+        var dirty = new boolean[n];
+        var dirtyStates = new IntList(n);
+        for (int s = 0; s < n; s++) {
+            dirty[s] = true;
+            dirtyStates.add(s);
+        }
+
+        while (dirtyStates.size > 0) {
+            var states = dirtyStates.toArray();
+            var d = states.length;
+            rounds++;
+            dirtyCount += d;
+
+            var signatures = new Signature[d];
+            if (pool == null) {
+                for (int j = 0; j < d; j++) {
+                    signatures[j] = signature(states[j]);
+                }
+            } else {
+                pool.submit(() -> IntStream.range(0, d).parallel().forEach(j -> signatures[j] = signature(states[j])))
+                        .join();
+            }
+
+            // Group dirty states by block, and then by signature, in one sort
+            Arrays.sort(signatures);
+
+            // Take the signature of the clean states of each block before any split
+            var cleanSignatures = new Signature[d];
+            for (int from = 0, to; from < d; from = to) {
+                to = endOfBlock(signatures, from);
+                var clean = moveToEnd(signatures, from, to);
+                if (clean != -1) {
+                    cleanSignatures[from] = signature(clean);
+                }
+            }
+
+            var moved = new IntList(16);
+            for (int from = 0, to; from < d; from = to) {
+                to = endOfBlock(signatures, from);
+                split(signatures, from, to, cleanSignatures[from], moved);
+            }
+
+            for (int s : states) {
+                dirty[s] = false;
+            }
+
+            dirtyStates = new IntList(16);
+            for (int k = 0; k < moved.size; k++) {
+                var t = moved.elements[k];
+                for (int i = backwardOffsets[t]; i < backwardOffsets[t + 1]; i++) {
+                    var s = backwardSources[i];
+                    if (!dirty[s]) {
+                        dirty[s] = true;
+                        dirtyStates.add(s);
+                    }
+                }
+            }
+        }
+
+        return block.clone();
+    }
+
+    int getNumberOfBlocks() {
+        return numberOfBlocks;
+    }
+
+    /**
+     * Returns the number of rounds of the last refinement.
+     */
+    int getNumberOfRounds() {
+        return rounds;
+    }
+
+    /**
+     * Returns the total number of dirty states over the rounds of the last refinement (the storage of a round is
+     * proportional to its dirty states).
+     */
+    long getDirtyCount() {
+        return dirtyCount;
+    }
+
+    private static int endOfBlock(Signature[] signatures, int from) {
+        var to = from + 1;
+        while (to < signatures.length && signatures[to].block == signatures[from].block) {
+            to++;
+        }
+        return to;
+    }
+
+    /**
+     * Moves the dirty states of a block (signatures from (inclusive) to to (exclusive)) to the end of the block, and
+     * returns a clean state of the block, or -1 if none.
+     */
+    private int moveToEnd(Signature[] signatures, int from, int to) {
+        var b = signatures[from].block;
+        var mid = blockEnd[b];
+        for (int j = from; j < to; j++) {
+            swap(positions[signatures[j].state], --mid);
+        }
+        return mid > blockStart[b] ? elements[blockStart[b]] : -1;
+    }
+
+    /**
+     * Splits a block by the signatures of its dirty states (from (inclusive) to to (exclusive), sorted by signature).
+     */
+    private void split(Signature[] signatures, int from, int to, Signature cleanSignature, IntList moved) {
+        var b = signatures[from].block;
+        var mid = blockEnd[b] - (to - from);
+
+        // Select the group that keeps b: the group of the clean states, if any, or else the largest group
+        var stayFrom = -1;
+        var stayTo = -1;
+        var groups = 0;
+        for (int g = from, h; g < to; g = h) {
+            h = g + 1;
+            while (h < to && signatures[h].hasSamePairs(signatures[g])) {
+                h++;
+            }
+            groups++;
+            if (cleanSignature != null
+                    ? signatures[g].hasSamePairs(cleanSignature)
+                    : stayFrom == -1 || h - g > stayTo - stayFrom) {
+                stayFrom = g;
+                stayTo = h;
+            }
+        }
+        if (groups == 1 && stayFrom != -1) {
+            return;
+        }
+
+        // Rewrite the dirty part: staying states first, then one new block per remaining group
+        var i = mid;
+        for (int j = Math.max(stayFrom, from); j < stayTo; j++) {
+            place(signatures[j].state, i++);
+        }
+        blockEnd[b] = i;
+
+        for (int g = from, h; g < to; g = h) {
+            if (g == stayFrom) {
+                h = stayTo;
+                continue;
+            }
+            h = g + 1;
+            while (h < to && signatures[h].hasSamePairs(signatures[g])) {
+                h++;
+            }
+            var c = newBlock(i, i + h - g);
+            for (int j = g; j < h; j++) {
+                var s = signatures[j].state;
+                place(s, i++);
+                block[s] = c;
+                moved.add(s);
+            }
+        }
+    }
+
+    private int newBlock(int start, int end) {
+        if (numberOfBlocks == blockStart.length) {
+            blockStart = Arrays.copyOf(blockStart, 2 * numberOfBlocks);
+            blockEnd = Arrays.copyOf(blockEnd, 2 * numberOfBlocks);
+        }
+        blockStart[numberOfBlocks] = start;
+        blockEnd[numberOfBlocks] = end;
+        return numberOfBlocks++;
+    }
+
+    private void swap(int i, int j) {
+        var s = elements[i];
+        var t = elements[j];
+        elements[i] = t;
+        elements[j] = s;
+        positions[t] = i;
+        positions[s] = j;
+    }
+
+    private void place(int s, int i) {
+        elements[i] = s;
+        positions[s] = i;
+    }
+
+    private Signature signature(int s) {
+        var from = forwardOffsets[s];
+        var to = forwardOffsets[s + 1];
+        var pairs = new long[to - from];
+        for (int i = from; i < to; i++) {
+            pairs[i - from] = ((long) forwardActions[i] << 32) | block[forwardTargets[i]];
+        }
+        Arrays.sort(pairs);
+
+        var k = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            if (i == 0 || pairs[i] != pairs[i - 1]) {
+                pairs[k++] = pairs[i];
+            }
+        }
+        return new Signature(s, block[s], k == pairs.length ? pairs : Arrays.copyOf(pairs, k));
+    }
+
+    /**
+     * Signature of a state, with the state and its block when the signature was computed. Signatures are ordered by
+     * block, and then by their pairs (first by hash, so equal pairs are adjacent).
+     */
+    private static class Signature implements Comparable<Signature> {
+
+        private final int state;
+
+        private final int block;
+
+        private final long[] pairs;
+
+        private final int hash;
+
+        private Signature(int state, int block, long[] pairs) {
+            this.state = state;
+            this.block = block;
+            this.pairs = pairs;
+            this.hash = Arrays.hashCode(pairs);
+        }
+
+        private boolean hasSamePairs(Signature that) {
+            return hash == that.hash && Arrays.equals(pairs, that.pairs);
+        }
+
+        @Override
+        public int compareTo(Signature that) {
+            var c = Integer.compare(block, that.block);
+            if (c == 0) {
+                c = Integer.compare(hash, that.hash);
+            }
+            if (c == 0) {
+                c = Arrays.compare(pairs, that.pairs);
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Growable list of ints.
+     */
+    private static class IntList {
+
+        private int[] elements;
+
+        private int size = 0;
+
+        private IntList(int capacity) {
+            this.elements = new int[Math.max(capacity, 1)];
+        }
+
+        private void add(int x) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, 2 * size);
+            }
+            elements[size++] = x;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package discourje.core.lts;
+
+import java.util.Map;
+
+/**
+ * Result of {@link LTSs#minimize(LTS)}: the quotient of an LTS under strong bisimulation, and the mapping from the
+ * states of the original LTS to the states of the quotient. Every state of the quotient has the spec of one of the
+ * original states in its block.
+ */
+public class Quotient<Spec> {
+
+    private final LTS<Spec> lts;
+
+    private final Map<State<Spec>, State<Spec>> states;
+
+    Quotient(LTS<Spec> lts, Map<State<Spec>, State<Spec>> states) {
+        this.lts = lts;
+        this.states = states;
+    }
+
+    public LTS<Spec> getLTS() {
+        return lts;
+    }
+
+    public Map<State<Spec>, State<Spec>> getStates() {
+        return states;
+    }
+
+    public State<Spec> getState(State<Spec> original) {
+        return states.get(original);
+    }
+}
@@ -0,0 +1,242 @@
+package discourje.core.lts;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntSupplier;
+
+/**
+ * Store of the states of an {@link LTS} for state spaces larger than the heap. On the heap, it keeps only a compact
+ * index from fingerprints to identifiers (two longs and an int per state, in open-addressing tables), the offset of
+ * the transitions of every expanded state, and the specs of unexpanded states. The transitions of expanded states are
+ * spilled, as (action identifier, target identifier) pairs, to a memory-mapped file, as soon as they are computed (so
+ * all expanded states are spilled, not only cold ones). Closing the store closes and deletes the file.
+ */
+class SpillingStateStore<Spec> implements AutoCloseable {
+
+    private static final int STRIPES = 64;
+
+    private static final int CHUNK = 1 << 16;
+
+    private static final long SEGMENT = 1L << 28;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    /**
+     * Per state, 0 if not yet expanded, or else 1 + the position of its transitions in the file
+     */
+    private final AtomicReferenceArray<AtomicLongArray> offsets = new AtomicReferenceArray<>(Integer.MAX_VALUE / CHUNK + 1);
+
+    private final Map<Integer, Spec> specs = new ConcurrentHashMap<>();
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final AtomicReferenceArray<MappedByteBuffer> segments = new AtomicReferenceArray<>(1 << 14);
+
+    private final AtomicLong position = new AtomicLong(0);
+
+    SpillingStateStore(Path path) throws IOException {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the identifier of the state with the given fingerprint. If absent, a new identifier is assigned, and the
+     * state gets the given spec until it is expanded.
+     */
+    int getOrAdd(Fingerprint fingerprint, Spec spec) {
+        var stripe = stripes[(int) (fingerprint.getHigh() >>> 58)];
+        return stripe.getOrAdd(fingerprint.getHigh(), fingerprint.getLow(), () -> {
+            var id = size.getAndIncrement();
+            specs.put(id, spec);
+            return id;
+        });
+    }
+
+    Spec getSpec(int id) {
+        return specs.get(id);
+    }
+
+    boolean isExpanded(int id) {
+        return chunk(id).get(id % CHUNK) != 0;
+    }
+
+    /**
+     * Spills the transitions of a state, unless they were spilled before, and returns true if they were not. The spec
+     * of the state is dropped.
+     */
+    boolean putTransitions(int id, int[] actions, int[] targets) {
+        var length = 4 + 8L * actions.length;
+        if (length > SEGMENT) {
+            throw new IllegalStateException("Too many transitions: " + actions.length);
+        }
+
+        long p;
+        long begin;
+        do {
+            p = position.get();
+            begin = p % SEGMENT + length > SEGMENT ? (p / SEGMENT + 1) * SEGMENT : p;
+        } while (!position.compareAndSet(p, begin + length));
+
+        var buffer = segment((int) (begin / SEGMENT));
+        var i = (int) (begin % SEGMENT);
+        buffer.putInt(i, actions.length);
+        for (int j = 0; j < actions.length; j++) {
+            buffer.putInt(i + 4 + 8 * j, actions[j]);
+            buffer.putInt(i + 8 + 8 * j, targets[j]);
+        }
+
+        if (chunk(id).compareAndSet(id % CHUNK, 0, begin + 1)) {
+            specs.remove(id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the transitions of a state, as (action identifier, target identifier) pairs in one array, or null if
+     * the state is not yet expanded.
+     */
+    int[] getTransitionsOrNull(int id) {
+        var offset = chunk(id).get(id % CHUNK);
+        if (offset == 0) {
+            return null;
+        }
+
+        var begin = offset - 1;
+        var buffer = segment((int) (begin / SEGMENT));
+        var i = (int) (begin % SEGMENT);
+        var pairs = new int[2 * buffer.getInt(i)];
+        for (int j = 0; j < pairs.length; j++) {
+            pairs[j] = buffer.getInt(i + 4 + 4 * j);
+        }
+        return pairs;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private AtomicLongArray chunk(int id) {
+        var c = offsets.get(id / CHUNK);
+        if (c == null) {
+            offsets.compareAndSet(id / CHUNK, null, new AtomicLongArray(CHUNK));
+            c = offsets.get(id / CHUNK);
+        }
+        return c;
+    }
+
+    private MappedByteBuffer segment(int i) {
+        var buffer = segments.get(i);
+        if (buffer == null) {
+            synchronized (segments) {
+                buffer = segments.get(i);
+                if (buffer == null) {
+                    try {
+                        buffer = channel.map(FileChannel.MapMode.READ_WRITE, i * SEGMENT, SEGMENT);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    segments.set(i, buffer);
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Open-addressing table from fingerprints to identifiers, for the fingerprints whose high bits select it.
+     */
+    private static class Stripe {
+
+        private long[] highs = new long[16];
+
+        private long[] lows = new long[16];
+
+        private int[] ids = filled(16);
+
+        private int count = 0;
+
+        /**
+         * Returns the identifier of the given fingerprint, obtaining a new one (under the lock of this stripe) if
+         * absent.
+         */
+        private synchronized int getOrAdd(long high, long low, IntSupplier newId) {
+            var i = find(highs, lows, ids, high, low);
+            if (ids[i] != -1) {
+                return ids[i];
+            }
+
+            var id = newId.getAsInt();
+            highs[i] = high;
+            lows[i] = low;
+            ids[i] = id;
+
+            if (++count > ids.length / 2) {
+                grow();
+            }
+            return id;
+        }
+
+        private void grow() {
+            var highs$prime = new long[2 * highs.length];
+            var lows$prime = new long[2 * lows.length];
+            var ids$prime = filled(2 * ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != -1) {
+                    var j = find(highs$prime, lows$prime, ids$prime, highs[i], lows[i]);
+                    highs$prime[j] = highs[i];
+                    lows$prime[j] = lows[i];
+                    ids$prime[j] = ids[i];
+                }
+            }
+            highs = highs$prime;
+            lows = lows$prime;
+            ids = ids$prime;
+        }
+
+        private static int find(long[] highs, long[] lows, int[] ids, long high, long low) {
+            var mask = ids.length - 1;
+            var i = (int) (low ^ (low >>> 32)) & mask;
+            while (ids[i] != -1 && (highs[i] != high || lows[i] != low)) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private static int[] filled(int length) {
+            var a = new int[length];
+            Arrays.fill(a, -1);
+            return a;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package discourje.core.lts;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Canonical set of states of an {@link LTS}, obtained through {@link LTS#getStateSet(Collection)}, that memoizes its
+ * successor sets (on-the-fly subset construction). Equal sets of the same LTS are the same instance (unless forgotten
+ * by a bounded memo; see {@link LTS#getStateSet(Collection)}), so a monitor that tracks a set of current states can
+ * compare and swap it by reference.
+ * <p>
+ * The successor set of a step depends on the type, sender and receiver of the step, and on which predicates of the
+ * candidate actions accept the message. The predicates are evaluated on every step, but the successor set is computed
+ * only once per distinct outcome.
+ */
+public class StateSet<Spec> extends AbstractSet<State<Spec>> {
+
+    private static final int MAX_CANDIDATES_PER_ARRAY = 6;
+
+    private LTS<Spec> lts;
+
+    private Set<State<Spec>> states;
+
+    private volatile Steps<Spec> steps = null;
+
+    private volatile long lastVisit;
+
+    StateSet(LTS<Spec> lts, Set<State<Spec>> states) {
+        this.lts = lts;
+        this.states = states;
+        this.lastVisit = lts.tick();
+    }
+
+    @Override
+    public Iterator<State<Spec>> iterator() {
+        return states.iterator();
+    }
+
+    @Override
+    public int size() {
+        return states.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return states.contains(o);
+    }
+
+    /**
+     * Performs a step, and returns the canonical set of target states. Steps run while no states are evicted (see
+     * {@link LTS#evict(int, java.util.function.Supplier)}).
+     */
+    public StateSet<Spec> expandThenPerform(Action.Type type, Object message, String sender, String receiver) {
+        lastVisit = lts.tick();
+
+        var lock = lts.readLock();
+        lock.lock();
+        try {
+            return perform(type, message, sender, receiver);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private StateSet<Spec> perform(Action.Type type, Object message, String sender, String receiver) {
+        var table = lts.getActionTable();
+        var steps = getSteps();
+
+        var senderId = table.getRoleId(sender);
+        var receiverId = table.getRoleId(receiver);
+        if ((senderId == -1 && sender != null) || (receiverId == -1 && receiver != null)) {
+            return lts.getStateSet(Collections.emptySet());
+        }
+
+        var i = Arrays.binarySearch(steps.keys, Transitions.key(type, senderId, receiverId));
+        if (i < 0) {
+            return lts.getStateSet(Collections.emptySet());
+        }
+
+        var step = steps.steps[i];
+        var candidates = step.candidates;
+        if (candidates.length >= Long.SIZE) {
+            return step.computeForMessage(message);
+        }
+
+        var outcome = 0L;
+        for (int j = 0; j < candidates.length; j++) {
+            if (candidates[j].getPredicate().test(message)) {
+                outcome |= 1L << j;
+            }
+        }
+
+        return step.getOrCompute(outcome);
+    }
+
+    long getLastVisit() {
+        return lastVisit;
+    }
+
+    /**
+     * Forgets the memoized successor sets (see {@link LTS#evict(int, java.util.function.Supplier)}).
+     */
+    void clearSteps() {
+        steps = null;
+    }
+
+    private Steps<Spec> getSteps() {
+        var steps = this.steps;
+        if (steps == null) {
+            steps = new Steps<>(this);
+            this.steps = steps;
+        }
+        return steps;
+    }
+
+    /**
+     * The steps out of a state set, sorted by the same keys as the dispatch index of {@link Transitions}.
+     */
+    private static class Steps<Spec> {
+
+        private final long[] keys;
+
+        private final Step<Spec>[] steps;
+
+        @SuppressWarnings("unchecked")
+        private Steps(StateSet<Spec> source) {
+            var groups = new TreeMap<Long, Set<Action>>();
+            for (State<Spec> s : source.states) {
+                for (Action a : States.transitionsOf(s).getActions()) {
+                    groups.computeIfAbsent(Transitions.key(a.getType(), a.getSenderId(), a.getReceiverId()),
+                            k -> new LinkedHashSet<>()).add(a);
+                }
+            }
+
+            this.keys = new long[groups.size()];
+            this.steps = (Step<Spec>[]) new Step<?>[groups.size()];
+
+            var i = 0;
+            for (Map.Entry<Long, Set<Action>> e : groups.entrySet()) {
+                keys[i] = e.getKey();
+                steps[i] = new Step<>(source, e.getValue().toArray(new Action[0]));
+                i++;
+            }
+        }
+    }
+
+    /**
+     * The candidate actions of one (type, sender, receiver) step, and the memoized successor set per outcome of their
+     * predicates. Outcomes of a few candidates are looked up in an array, others in a map; steps with 64 or more
+     * candidates are not memoized.
+     */
+    private static class Step<Spec> {
+
+        private final StateSet<Spec> source;
+
+        private final Action[] candidates;
+
+        private final AtomicReferenceArray<StateSet<Spec>> targetsByOutcome;
+
+        private final Map<Long, StateSet<Spec>> targetsByOutcomeMap;
+
+        private Step(StateSet<Spec> source, Action[] candidates) {
+            this.source = source;
+            this.candidates = candidates;
+            if (candidates.length <= MAX_CANDIDATES_PER_ARRAY) {
+                this.targetsByOutcome = new AtomicReferenceArray<>(1 << candidates.length);
+                this.targetsByOutcomeMap = null;
+            } else {
+                this.targetsByOutcome = null;
+                this.targetsByOutcomeMap = new ConcurrentHashMap<>();
+            }
+        }
+
+        private StateSet<Spec> getOrCompute(long outcome) {
+            if (targetsByOutcome != null) {
+                var targets = targetsByOutcome.get((int) outcome);
+                if (targets == null) {
+                    targets = computeForOutcome(outcome);
+                    targetsByOutcome.compareAndSet((int) outcome, null, targets);
+                }
+                return targets;
+            } else {
+                return targetsByOutcomeMap.computeIfAbsent(outcome, this::computeForOutcome);
+            }
+        }
+
+        private StateSet<Spec> computeForOutcome(long outcome) {
+            var enabled = new boolean[candidates.length];
+            for (int j = 0; j < candidates.length; j++) {
+                enabled[j] = (outcome & (1L << j)) != 0;
+            }
+            return compute(enabled);
+        }
+
+        private StateSet<Spec> computeForMessage(Object message) {
+            var enabled = new boolean[candidates.length];
+            for (int j = 0; j < candidates.length; j++) {
+                enabled[j] = candidates[j].getPredicate().test(message);
+            }
+            return compute(enabled);
+        }
+
+        private StateSet<Spec> compute(boolean[] enabled) {
+            var targets = new LinkedHashSet<State<Spec>>();
+            for (State<Spec> s : source.states) {
+                var targetsByAction = States.transitionsOf(s).getTargetsByAction();
+                for (int j = 0; j < candidates.length; j++) {
+                    if (enabled[j]) {
+                        var set = targetsByAction.get(candidates[j]);
+                        if (set != null) {
+                            targets.addAll(set);
+                        }
+                    }
+                }
+            }
+            return source.lts.getStateSet(targets);
+        }
+    }
+}
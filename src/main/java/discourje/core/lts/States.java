@@ -8,13 +8,32 @@ public class States {
     public static Collection<State<?>> expandThenPerform(Collection<State<?>> sources,
             Action.Type type, Object message, String sender, String receiver) {
 
+        if (sources.size() == 1) {
+            var source = sources.iterator().next();
+            @SuppressWarnings("unchecked")
+            var targets = (Collection<State<?>>) (Collection<?>) transitionsOf(source)
+                    .perform(type, message, sender, receiver);
+            return targets;
+        }
+
         var targets = new LinkedHashSet<State<?>>();
         for (State<?> source : sources) {
-            source.expand();
-            var transitions = source.getTransitionsOrNull();
-            targets.addAll(transitions.perform(type, message, sender, receiver));
+            targets.addAll(transitionsOf(source).perform(type, message, sender, receiver));
         }
 
         return targets;
     }
+
+    /**
+     * Returns the transitions of a state, expanding it first if needed (again, if evicted concurrently; see
+     * {@link LTS#evict(int, java.util.function.Supplier)}).
+     */
+    static <Spec> Transitions<Spec> transitionsOf(State<Spec> s) {
+        var transitions = s.getTransitionsOrNull();
+        while (transitions == null) {
+            s.expand();
+            transitions = s.getTransitionsOrNull();
+        }
+        return transitions;
+    }
 }
@@ -4,51 +4,32 @@ import java.util.*;
 
 public class Transitions<Spec> {
 
-    @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
-    private Map<String, Map<String, Set<Action>>> syncs = new LinkedHashMap<>();
+    private ActionTable table;
 
-    @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
-    private Map<String, Map<String, Set<Action>>> sends = new LinkedHashMap<>();
+    private Map<Action, Set<State<Spec>>> targets = new LinkedHashMap<>();
 
-    @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
-    private Map<String, Map<String, Set<Action>>> receives = new LinkedHashMap<>();
+    private volatile Dispatch<Spec> dispatch = null;
 
-    @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
-    private Map<String, Map<String, Set<Action>>> closes = new LinkedHashMap<>();
+    public Transitions() {
+        this(new ActionTable());
+    }
 
-    private Map<Action, Set<State<Spec>>> targets = new LinkedHashMap<>();
+    Transitions(ActionTable table) {
+        this.table = table;
+    }
 
     void addTarget(Action a, State<Spec> target) {
-        {
-            var set = targets.get(a);
-            //noinspection Java8MapApi
-            if (set == null) {
-                set = new LinkedHashSet<>();
-                targets.put(a, set);
-            }
-            set.add(target);
+        var set = targets.get(a);
+        //noinspection Java8MapApi
+        if (set == null) {
+            set = new LinkedHashSet<>();
+            targets.put(a, set);
         }
-        {
-            var sender = a.getSender();
-            var receiver = a.getReceiver();
-
-            var mapMapSet = a.getType().select(syncs, sends, receives, closes);
-            var mapSet = mapMapSet.get(sender);
-            //noinspection Java8MapApi
-            if (mapSet == null) {
-                mapSet = new LinkedHashMap<>();
-                mapMapSet.put(sender, mapSet);
-            }
-
-            var set = mapSet.get(receiver);
-            //noinspection Java8MapApi
-            if (set == null) {
-                set = new LinkedHashSet<>();
-                mapSet.put(receiver, set);
-            }
+        set.add(target);
+    }
 
-            set.add(a);
-        }
+    Map<Action, Set<State<Spec>>> getTargetsByAction() {
+        return targets;
     }
 
     public Collection<Action> getActions() {
@@ -75,27 +56,53 @@ public class Transitions<Spec> {
         return size() == 0;
     }
 
+    /**
+     * Returns the targets of the actions that match the given type, sender and receiver, and whose predicate accepts
+     * the message. When at most one action matches (the common case), no new collection is allocated: the result is a
+     * shared, unmodifiable view of the targets of that action.
+     */
     public Collection<State<Spec>> perform(Action.Type type, Object message, String sender, String receiver) {
-        var mapMapSet = type.select(syncs, sends, receives, closes);
-
-        var mapSet = mapMapSet.get(sender);
-        if (mapSet == null) {
+        var senderId = table.getRoleId(sender);
+        var receiverId = table.getRoleId(receiver);
+        if ((senderId == -1 && sender != null) || (receiverId == -1 && receiver != null)) {
             return Collections.emptySet();
         }
 
-        var set = mapSet.get(receiver);
-        if (set == null) {
+        var dispatch = this.dispatch;
+        if (dispatch == null) {
+            dispatch = new Dispatch<>(targets);
+            this.dispatch = dispatch;
+        }
+
+        var i = Arrays.binarySearch(dispatch.keys, key(type, senderId, receiverId));
+        if (i < 0) {
             return Collections.emptySet();
         }
 
-        var result = new LinkedHashSet<State<Spec>>();
-        for (Action a : set) {
-            if (a.getPredicate().test(message)) {
-                result.addAll(targets.get(a));
+        var actions = dispatch.actions[i];
+        var results = dispatch.results[i];
+
+        Collection<State<Spec>> result = null;
+        var shared = true;
+        for (int j = 0; j < actions.length; j++) {
+            if (actions[j].getPredicate().test(message)) {
+                if (result == null) {
+                    result = results[j];
+                } else {
+                    if (shared) {
+                        result = new LinkedHashSet<>(result);
+                        shared = false;
+                    }
+                    result.addAll(results[j]);
+                }
             }
         }
 
-        return result;
+        return result == null ? Collections.emptySet() : result;
+    }
+
+    static long key(Action.Type type, int senderId, int receiverId) {
+        return ((long) type.ordinal() << 62) | ((long) (senderId + 1) << 31) | (receiverId + 1);
     }
 
     public int size() {
@@ -105,4 +112,41 @@ public class Transitions<Spec> {
         }
         return i;
     }
+
+    /**
+     * Index of the actions of a state by (type, sender identifier, receiver identifier), stored as sorted keys with
+     * parallel arrays of candidate actions and of unmodifiable views of their targets.
+     */
+    private static class Dispatch<Spec> {
+
+        private final long[] keys;
+
+        private final Action[][] actions;
+
+        private final Collection<State<Spec>>[][] results;
+
+        @SuppressWarnings("unchecked")
+        private Dispatch(Map<Action, Set<State<Spec>>> targets) {
+            var groups = new TreeMap<Long, List<Action>>();
+            for (Action a : targets.keySet()) {
+                groups.computeIfAbsent(key(a.getType(), a.getSenderId(), a.getReceiverId()), k -> new ArrayList<>())
+                        .add(a);
+            }
+
+            this.keys = new long[groups.size()];
+            this.actions = new Action[groups.size()][];
+            this.results = (Collection<State<Spec>>[][]) new Collection<?>[groups.size()][];
+
+            var i = 0;
+            for (Map.Entry<Long, List<Action>> e : groups.entrySet()) {
+                keys[i] = e.getKey();
+                actions[i] = e.getValue().toArray(new Action[0]);
+                results[i] = (Collection<State<Spec>>[]) new Collection<?>[actions[i].length];
+                for (int j = 0; j < actions[i].length; j++) {
+                    results[i][j] = Collections.unmodifiableSet(targets.get(actions[i][j]));
+                }
+                i++;
+            }
+        }
+    }
 }
@@ -107,6 +107,42 @@
     (is (not-failed? t1))
     (is (not-failed? t2 "foo")))
 
+  (let [m (a/monitor (s/--> ::alice ::bob) :minimize true)
+        c (a/chan (s/role ::alice) (s/role ::bob) m {})
+        t1 (a/thread (no-throw (a/>!! c "foo")))
+        t2 (a/thread (no-throw (a/<!! c)))]
+    (is (not-failed? t1))
+    (is (not-failed? t2 "foo")))
+
+  (let [m (a/monitor (s/loop x [i 0]
+                       (s/if (< i 20)
+                         (s/cat (s/--> ::alice ::bob)
+                                (s/recur x (inc i)))))
+                     :capacity 8)
+        c (a/chan (s/role ::alice) (s/role ::bob) m {})
+        t1 (a/thread (no-throw (dotimes [i 20] (a/>!! c i)) true))
+        t2 (a/thread (no-throw (dotimes [i 20] (a/<!! c)) true))]
+    (is (not-failed? t1 true))
+    (is (not-failed? t2 true))
+    (is (<= (count (.getStates (.-lts m))) 8)))
+
+  (let [m (a/monitor (s/par-every [i (range 3)]
+                       (s/loop x [j 0]
+                         (s/if (< j 30)
+                           (s/cat (s/--> (::alice i) (::bob i))
+                                  (s/recur x (inc j))))))
+                     :capacity 16)
+        cs (mapv #(a/chan (s/role ::alice [%]) (s/role ::bob [%]) m {}) (range 3))
+        ts (into (mapv (fn [c] (a/thread (no-throw (dotimes [j 30] (a/>!! c j)) true))) cs)
+                 (mapv (fn [c] (a/thread (no-throw (dotimes [j 30] (a/<!! c)) true))) cs))
+        _ (run! #(is (not-failed? % true)) ts)
+        states (set (.getStates (.-lts m)))]
+    (is (<= (count states) 16))
+    (is (= (count states) (count (set (map #(.getIdentifier ^discourje.core.lts.State %) states)))))
+    (is (every? #(or (nil? (.getTransitionsOrNull ^discourje.core.lts.State %))
+                     (every? states (.getTargets (.getTransitionsOrNull ^discourje.core.lts.State %))))
+                states)))
+
   (let [m (a/monitor (s/--> ::alice ::bob))
         c (a/chan (s/role ::alice) (s/role ::carol) m {})
         t1 (a/thread (no-throw (a/>!! c "foo")))
@@ -1,6 +1,7 @@
 (ns discourje.core.spec-tests
   (:require [clojure.test :refer :all]
             [discourje.core.spec :as s]
+            [discourje.core.spec.interp :as interp]
             [discourje.core.spec.lts :as lts]))
 
 (defn msg [lts1 lts2]
@@ -850,3 +851,505 @@
     (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))))
 
 (apply-tests)
+
+;;;;
+;;;; Expansion
+;;;;
+
+(deftest expansion-tests
+  (let [spec (s/par-every [i (range 4)]
+                          (s/-->> (::alice i) (::bob i)))
+        lts1 (lts/lts spec :parallel false)
+        lts2 (lts/lts spec :parallel true)]
+    (is (= (count (.getStates lts1)) (count (.getStates lts2))))
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2)))
+
+  (let [spec (s/par-every [i (range 4)]
+                          (s/-->> (::alice i) (::bob i)))
+        lts1 (lts/lts spec)
+        lts2 (lts/lts spec)
+        lts3 (lts/lts spec :parallel false)]
+    (is (= (str lts1) (str lts2)))
+    (is (= (str lts1) (str lts3))))
+
+  (let [spec (s/par-every [i (range 4)]
+                          (s/-->> (::alice i) (::bob i)))
+        progress (atom [])
+        lts1 (lts/lts spec :parallel false)
+        lts2 (lts/lts spec :exploration (lts/exploration :order :dfs
+                                                         :progress #(swap! progress conj %)
+                                                         :interval 0))]
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))
+    (is (= (count (.getStates lts1)) (:states (last @progress))))
+    (is (= 0 (:frontier (last @progress)))))
+
+  (let [spec (s/par-every [i (range 4)]
+                          (s/-->> (::alice i) (::bob i)))]
+    (is (thrown-with-msg? clojure.lang.ExceptionInfo #"Budget"
+                          (lts/lts spec :exploration (lts/exploration :budget 10))))
+    (is (thrown-with-msg? clojure.lang.ExceptionInfo #"Cancelled"
+                          (lts/lts spec :exploration (doto (lts/exploration) (lts/cancel!)))))))
+
+(expansion-tests)
+
+;;;;
+;;;; Memoization
+;;;;
+
+(s/defsession ::tic-tac-toe []
+  (s/alt (::tic-tac-toe-turn ::alice ::bob)
+         (::tic-tac-toe-turn ::bob ::alice)))
+
+(s/defsession ::tic-tac-toe-turn [r1 r2]
+  (s/--> Long r1 r2)
+  (s/alt (::tic-tac-toe-turn r2 r1)
+         (s/par (s/close r1 r2)
+                (s/close r2 r1))))
+
+(s/defsession ::rock-paper-scissors [ids]
+  (::rock-paper-scissors-round ids s/empty-set))
+
+(s/defsession ::rock-paper-scissors-round [ids co-ids]
+  (s/if (> (s/count ids) 1)
+    (s/cat (s/par-every [i ids
+                         j (s/disj ids i)]
+             (s/--> String (::alice i) (::alice j)))
+           (s/alt-every [winner-ids (s/power-set ids)]
+             (s/let [loser-ids (s/difference ids winner-ids)]
+               (s/par (::rock-paper-scissors-round winner-ids (s/union co-ids loser-ids))
+                      (s/par-every [i loser-ids
+                                    j (s/disj (s/union ids co-ids) i)]
+                        (s/close (::alice i) (::alice j)))))))))
+
+(s/defsession ::ring [k]
+  (s/* (s/cat-every [i (range k)]
+         (s/-->> Boolean (::alice i) (::alice (mod (inc i) k))))))
+
+(s/defsession ::star [k]
+  (s/cat (s/* (s/par-every [i (range k)]
+                (s/cat (s/-->> Long ::alice (::bob i))
+                       (s/-->> Long (::bob i) ::alice))))
+         (s/par (s/par-every [i (range k)]
+                  (s/close ::alice (::bob i)))
+                (s/par-every [i (range k)]
+                  (s/close (::bob i) ::alice)))))
+
+(deftest memoization-tests
+  (binding [*ns* (find-ns 'discourje.core.spec-tests)]
+    (doseq [spec [(tic-tac-toe)
+                  (rock-paper-scissors #{0 1 2})
+                  (ring 3)
+                  (star 3)]]
+      (let [lts1 (lts/lts spec)
+            lts2 (lts/lts spec :memoize false)]
+        (is (= (count (.getStates lts1)) (count (.getStates lts2))))
+        (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))))))
+
+(memoization-tests)
+
+;;;;
+;;;; Freezing
+;;;;
+
+(deftest freeze-tests
+  (let [lts (lts/lts (s/par (s/-->> ::alice ::bob)
+                            (s/close ::alice ::bob)))
+        frozen (lts/freeze lts)
+        n (.numberOfStates frozen)]
+    (is (= (count (.getStates lts)) n))
+    (is (= (reduce + (map #(.size (.getTransitionsOrNull %)) (.getStates lts)))
+           (.numberOfTransitions frozen)))
+    (is (= 3 (.numberOfActions frozen)))
+    (is (= (reduce + (map #(.outDegree frozen %) (range n)))
+           (reduce + (map #(.inDegree frozen %) (range n)))))
+    (is (= [0] (vec (.getInitialStates frozen))))))
+
+(freeze-tests)
+
+;;;;
+;;;; State sets
+;;;;
+
+(deftest state-set-tests
+  (let [lts (lts/lts (s/* (s/alt (s/--> Long ::alice ::bob)
+                                 (s/--> Object ::alice ::bob))))
+        initial (lts/state-set lts (lts/initial-states lts))
+        next1 (lts/expand-then-perform! initial :sync 1 "alice" "bob")
+        next2 (lts/expand-then-perform! initial :sync 2 "alice" "bob")
+        next3 (lts/expand-then-perform! initial :sync "3" "alice" "bob")]
+    (is (identical? initial (lts/state-set lts (lts/initial-states lts))))
+    (is (identical? next1 next2))
+    (is (not (empty? next3)))
+    (is (empty? (lts/expand-then-perform! initial :sync 1 "bob" "alice")))
+    (is (empty? (lts/expand-then-perform! initial :sync 1 "alice" "carol")))))
+
+(state-set-tests)
+
+;;;;
+;;;; Bisimilarity
+;;;;
+
+(deftest bisimilarity-tests
+  (let [lts1 (lts/lts (s/alt (s/cat (s/-->> ::alice ::bob) (s/-->> ::alice ::carol))
+                             (s/cat (s/-->> ::alice ::bob) (s/-->> ::alice ::dave))))
+        lts2 (lts/lts (s/cat (s/-->> ::alice ::bob)
+                             (s/alt (s/-->> ::alice ::carol) (s/-->> ::alice ::dave))))]
+    (is (lts/not-bisimilar? lts1 lts2) (msg lts1 lts2)))
+
+  (let [lts1 (lts/lts (s/par-every [i (range 3)]
+                                   (s/-->> (::alice i) (::bob i))))
+        lts2 (lts/lts (s/par-every [i (reverse (range 3))]
+                                   (s/-->> (::alice i) (::bob i))))]
+    (is (lts/bisimilar? lts1 lts2 :parallel true) (msg lts1 lts2))))
+
+(bisimilarity-tests)
+
+;;;;
+;;;; Minimization
+;;;;
+
+(deftest minimize-tests
+  (let [lts1 (lts/lts (s/cat (s/-->> ::alice ::bob)
+                             (s/* (s/-->> ::alice ::bob))))
+        lts2 (lts/minimize lts1)]
+    (is (= 3 (count (.getStates lts1))))
+    (is (= 2 (count (.getStates lts2))))
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2)))
+
+  (let [lts1 (lts/lts (s/par (s/-->> ::alice ::bob)
+                             (s/-->> ::alice ::bob)))
+        lts2 (lts/minimize lts1 :parallel true)]
+    (is (< (count (.getStates lts2)) (count (.getStates lts1))))
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))))
+
+(minimize-tests)
+
+;;;;
+;;;; Aldebaran
+;;;;
+
+(deftest aldebaran-tests
+  (let [lts1 (lts/lts (s/par-every [i (range 3)]
+                                   (s/cat (s/-->> (::alice i) (::bob i))
+                                          (s/close (::alice i) (::bob i)))))
+        file (java.io.File/createTempFile "aldebaran-tests" ".aut")
+        _ (.deleteOnExit file)
+        _ (with-open [w (clojure.java.io/writer file)]
+            (lts/write-aldebaran lts1 w))
+        lts2 (lts/read-aldebaran file)]
+    (is (= (str lts1) (slurp file)))
+    (is (= (count (.getStates lts1)) (do (.expandRecursively lts2) (count (.getStates lts2)))))
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))
+    (is (= (lts/channels lts1) (lts/channels lts2)))))
+
+(aldebaran-tests)
+
+;;;;
+;;;; Cache
+;;;;
+
+(deftest cache-tests
+  (let [dir (.toFile (java.nio.file.Files/createTempDirectory "cache-tests" (make-array java.nio.file.attribute.FileAttribute 0)))
+        spec (s/par-every [i (range 3)]
+                          (s/cat (s/--> Long (::alice i) (::bob i))
+                                 (s/close (::alice i) (::bob i))))
+        lts1 (lts/lts spec :cache dir)
+        lts2 (lts/lts spec :cache dir)
+        initial (lts/initial-states lts2)]
+    (is (= 1 (count (.listFiles dir))))
+    (is (= 0 (.getSpec (first initial))))
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))
+    (is (not (empty? (lts/expand-then-perform! initial :sync 1 "alice[0]" "bob[0]"))))
+    (is (empty? (lts/expand-then-perform! initial :sync "1" "alice[0]" "bob[0]")))
+    (run! #(.delete %) (.listFiles dir))
+    (.delete dir)))
+
+(def cache-tests-message 1)
+
+(defn cache-tests-predicate [x] (= x 1))
+
+(deftest cache-var-tests
+  (binding [*ns* (find-ns 'discourje.core.spec-tests)]
+    (let [dir (.toFile (java.nio.file.Files/createTempDirectory "cache-tests" (make-array java.nio.file.attribute.FileAttribute 0)))
+          spec (s/--> (fn [x] (= x cache-tests-message)) ::alice ::bob)
+          lts1 (lts/lts spec :cache dir)]
+      (is (= 1 (count (.listFiles dir))))
+      (is (not (empty? (lts/expand-then-perform! (lts/initial-states lts1) :sync 1 "alice" "bob"))))
+
+      ;; A redefined var yields a different key
+      (alter-var-root #'cache-tests-message (constantly 2))
+      (let [lts2 (lts/lts spec :cache dir)]
+        (is (= 2 (count (.listFiles dir))))
+        (is (empty? (lts/expand-then-perform! (lts/initial-states lts2) :sync 1 "alice" "bob")))
+        (is (not (empty? (lts/expand-then-perform! (lts/initial-states lts2) :sync 2 "alice" "bob")))))
+      (alter-var-root #'cache-tests-message (constantly 1))
+
+      ;; A var that holds a function is not cached
+      (lts/lts (s/--> cache-tests-predicate ::alice ::bob) :cache dir)
+      (is (= 2 (count (.listFiles dir))))
+
+      (run! #(.delete %) (.listFiles dir))
+      (.delete dir))))
+
+(def cache-tests-index 0)
+
+(def cache-tests-flag true)
+
+(deftest cache-redefinition-tests
+  (binding [*ns* (find-ns 'discourje.core.spec-tests)]
+    (let [spec (s/cat (s/if cache-tests-flag (s/end) (s/--> ::bob ::alice))
+                      (s/--> cache-tests-message (::alice cache-tests-index) ::bob))
+          lts1 (lts/lts spec :cache nil)
+          lts2 (lts/lts (s/graph des (0, 1, 2)
+                                 (0, "‽(cache-tests-message,alice[0],bob)", 1)))]
+      (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))
+      (is (not (empty? (lts/expand-then-perform! (lts/initial-states lts1) :sync 1 "alice[0]" "bob"))))
+
+      ;; Redefined vars are picked up by the predicate, role, action and terminated? caches
+      (alter-var-root #'cache-tests-message (constantly 2))
+      (alter-var-root #'cache-tests-index (constantly 1))
+      (alter-var-root #'cache-tests-flag (constantly false))
+      (let [lts1 (lts/lts spec :cache nil)
+            lts2 (lts/lts (s/graph des (0, 2, 3)
+                                   (0, "‽(Object,bob,alice)", 1)
+                                   (1, "‽(cache-tests-message,alice[1],bob)", 2)))
+            states (lts/expand-then-perform! (lts/initial-states lts1) :sync "" "bob" "alice")]
+        (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))
+        (is (empty? (lts/expand-then-perform! states :sync 1 "alice[1]" "bob")))
+        (is (not (empty? (lts/expand-then-perform! states :sync 2 "alice[1]" "bob")))))
+      (alter-var-root #'cache-tests-message (constantly 1))
+      (alter-var-root #'cache-tests-index (constantly 0))
+      (alter-var-root #'cache-tests-flag (constantly true)))))
+
+(deftest substitution-tests
+  (let [branch1 (s/--> (::alice 0) (::bob 0))
+        branch2 (s/--> (::alice i) (::bob i))
+        ast (interp/substitute (s/cat branch1 branch2) {'i 1})]
+    (is (identical? branch1 (first (:branches ast))))
+    (is (= (s/--> (::alice 1) (::bob 1)) (second (:branches ast))))
+    (is (identical? branch2 (interp/substitute branch2 {'j 1})))))
+
+(cache-tests)
+(cache-var-tests)
+(cache-redefinition-tests)
+(substitution-tests)
+
+;;;;
+;;;; Evaluation caches
+;;;;
+
+(def evaluation-cache-tests-index 0)
+
+(def evaluation-cache-tests-message 1)
+
+(def evaluation-cache-tests-flag true)
+
+(deftest evaluation-cache-bound-tests
+  (with-redefs [interp/cache-capacity 16]
+    (let [roles (mapv #(s/role ::alice [%]) (range 100))
+          actions (mapv #(s/--> Long (::alice %) ::bob) (range 100))]
+      (is (= (mapv #(str "alice[" % "]") (range 100)) (mapv interp/eval-role roles)))
+      (is (<= (.size @#'interp/eval-role-cache) 16))
+      (is (= (mapv #(str "‽(Long,alice[" % "],bob)") (range 100)) (mapv #(:name (interp/action %)) actions)))
+      (is (<= (.size @#'interp/action-cache) 16))
+      (is (every? #(not (interp/terminated? (s/cat % (s/end)) #{})) actions))
+      (is (<= (.size @#'interp/terminated-cache) 16))
+
+      ;; Values are recomputed correctly once cleared
+      (is (= (mapv #(str "alice[" % "]") (range 100)) (mapv interp/eval-role roles))))))
+
+(deftest evaluation-cache-var-tests
+  (binding [*ns* (find-ns 'discourje.core.spec-tests)]
+    (let [role (s/role ::alice [evaluation-cache-tests-index])
+          predicate (:predicate (s/--> evaluation-cache-tests-message ::alice ::bob))
+          action (s/--> evaluation-cache-tests-message (::alice evaluation-cache-tests-index) ::bob)
+          ast (s/if evaluation-cache-tests-flag (s/end) (s/--> ::alice ::bob))]
+      (is (= "alice[0]" (interp/eval-role role)))
+      (is ((interp/eval-predicate predicate) 1))
+      (is (= "alice[0]" (:sender (interp/action action))))
+      (is (interp/terminated? ast #{}))
+
+      ;; Cached values are not served once the vars are redefined
+      (alter-var-root #'evaluation-cache-tests-index (constantly 1))
+      (alter-var-root #'evaluation-cache-tests-message (constantly 2))
+      (alter-var-root #'evaluation-cache-tests-flag (constantly false))
+      (is (= "alice[1]" (interp/eval-role role)))
+      (is (not ((interp/eval-predicate predicate) 1)))
+      (is ((interp/eval-predicate predicate) 2))
+      (is (= "alice[1]" (:sender (interp/action action))))
+      (is (not ((:predicate (interp/action action)) 1)))
+      (is (not (interp/terminated? ast #{})))
+      (alter-var-root #'evaluation-cache-tests-index (constantly 0))
+      (alter-var-root #'evaluation-cache-tests-message (constantly 1))
+      (alter-var-root #'evaluation-cache-tests-flag (constantly true)))))
+
+(deftest evaluation-cache-concurrency-tests
+  (with-redefs [interp/cache-capacity 64]
+    (let [n 1000
+          expected (mapv #(str "‽(Long,alice[" (mod % 100) "],bob[" (mod % 7) "])") (range n))
+          results (->> (range 8)
+                       (mapv (fn [_]
+                               (future
+                                 (mapv #(:name (interp/action (s/--> Long (::alice (mod % 100)) (::bob (mod % 7)))))
+                                       (shuffle (range n))))))
+                       (mapv deref))]
+      (is (every? #(= (set expected) (set %)) results))
+      (is (<= (.size @#'interp/action-cache) 64))
+      (is (<= (.size @#'interp/eval-role-cache) 64)))))
+
+(evaluation-cache-bound-tests)
+(evaluation-cache-var-tests)
+(evaluation-cache-concurrency-tests)
+
+;;;;
+;;;; Partial-order reduction
+;;;;
+
+(deftest reduction-tests
+  (let [spec (s/par-every [i (range 4)]
+                          (s/cat (s/-->> (::alice i) (::bob i))
+                                 (s/close (::alice i) (::bob i))))
+        lts1 (lts/lts spec)
+        lts2 (lts/lts spec :reduction :por)]
+    (is (< (count (.getStates lts2)) (count (.getStates lts1))))
+    (is (= (lts/channels lts1) (lts/channels lts2))))
+
+  ;; Dependent branches are interleaved
+  (let [spec (s/par (s/-->> ::alice ::bob)
+                    (s/-->> ::alice ::carol))]
+    (is (lts/bisimilar? (lts/lts spec) (lts/lts spec :reduction :por))))
+
+  ;; Branches that loop are interleaved
+  (let [spec (s/par (s/* (s/-->> ::alice ::bob))
+                    (s/* (s/-->> ::carol ::dave)))]
+    (is (lts/bisimilar? (lts/lts spec) (lts/lts spec :reduction :por)))))
+
+(reduction-tests)
+
+;;;;
+;;;; Symmetry reduction
+;;;;
+
+(deftest symmetry-tests
+  (let [spec (s/par-every [i (range 4)]
+                          (s/cat (s/-->> ::alice (::bob i))
+                                 (s/-->> (::bob i) ::alice)))
+        lts1 (lts/lts spec)
+        lts2 (lts/lts spec :symmetry :auto)
+        lts3 (lts/lts spec :symmetry #{::bob})]
+    (is (= #{#{::bob}} (interp/symmetric-roles spec)))
+    (is (< (count (.getStates lts2)) (count (.getStates lts1))))
+    (is (= (count (.getStates lts2)) (count (.getStates lts3)))))
+
+  ;; Roles whose indices are computed are not symmetric
+  (let [spec (s/par-every [i (range 3)]
+                          (s/-->> (::alice i) (::bob (inc i))))]
+    (is (= #{} (interp/symmetric-roles spec))))
+
+  ;; Roles in sequence are not symmetric
+  (let [spec (s/cat-every [i (range 3)]
+                          (s/-->> ::alice (::bob i)))]
+    (is (= #{} (interp/symmetric-roles spec)))))
+
+(symmetry-tests)
+
+;;;;
+;;;; History
+;;;;
+
+(deftest history-tests
+  (let [spec (s/* (s/alt (s/-->> ::alice ::bob)
+                         (s/-->> ::bob ::alice)))
+        lts1 (lts/lts spec :history 1)
+        lts2 (lts/lts spec :history 2)
+        lts3 (lts/lts spec :history (fn [hist] []))]
+    (is (= 5 (count (.getStates lts1))))
+    (is (= 9 (count (.getStates lts2))))
+    (is (lts/bisimilar? (lts/lts spec) lts1) (msg (lts/lts spec) lts1))
+    (is (lts/bisimilar? (lts/lts spec) lts3) (msg (lts/lts spec) lts3))))
+
+(history-tests)
+
+;;;;
+;;;; Fingerprints
+;;;;
+
+(deftest fingerprint-tests
+  (let [spec (s/par-every [i (range 3)]
+                          (s/cat (s/-->> (::alice i) (::bob i))
+                                 (s/close (::alice i) (::bob i))))
+        lts1 (lts/lts spec)
+        lts2 (lts/lts spec :fingerprint true)]
+    (is (= (count (.getStates lts1)) (count (.getStates lts2))))
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))
+    (is (every? #(nil? (.getSpec %)) (.getStates lts2))))
+
+  (let [spec (s/* (s/-->> ::alice ::bob))]
+    (is (lts/bisimilar? (lts/lts spec :history 2) (lts/lts spec :history 2 :fingerprint true))))
+
+  ;; "Aa" and "BB" have equal 32-bit hashes
+  (let [spec (s/alt (s/cat (s/--> Long ::alice ::bob) (s/--> "Aa" ::alice ::alice))
+                    (s/cat (s/--> Long ::alice ::carol) (s/--> "BB" ::alice ::alice)))
+        lts1 (lts/lts spec)
+        lts2 (lts/lts spec :fingerprint true)]
+    (is (= 4 (count (.getStates lts1)) (count (.getStates lts2))))
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2)))
+
+  (is (not= (interp/fingerprint "Aa") (interp/fingerprint "BB")))
+  (is (not= (interp/fingerprint ["a" "bc"]) (interp/fingerprint ["ab" "c"])))
+  (is (not= (interp/fingerprint 1) (interp/fingerprint "1")))
+  (is (= (interp/fingerprint [1 {:a #{"b" "c"}}]) (interp/fingerprint (list 1 (hash-map :a (hash-set "c" "b")))))))
+
+(fingerprint-tests)
+
+;;;;
+;;;; Spilling
+;;;;
+
+(deftest spill-tests
+  (let [dir (.toFile (java.nio.file.Files/createTempDirectory "spill-tests" (make-array java.nio.file.attribute.FileAttribute 0)))
+        _ (.deleteOnExit dir)
+        spec (s/par-every [i (range 3)]
+                          (s/cat (s/--> Long (::alice i) (::bob i))
+                                 (s/close (::alice i) (::bob i))))
+        lts1 (lts/lts spec)
+        lts2 (lts/lts spec :spill dir)
+        lts3 (lts/lts spec :spill dir :on-the-fly true)
+        initial (lts/initial-states lts3)]
+    (is (= (count (.getStates lts1)) (count (.getStates lts2))))
+    (is (lts/bisimilar? lts1 lts2) (msg lts1 lts2))
+    (is (= (lts/channels lts1) (lts/channels lts2)))
+    (is (not (empty? (lts/expand-then-perform! initial :sync 1 "alice[0]" "bob[0]"))))
+    (is (empty? (lts/expand-then-perform! initial :sync "1" "alice[0]" "bob[0]")))
+    (is (= 2 (count (.listFiles dir))))
+    (.close lts2)
+    (is (= 1 (count (.listFiles dir))))
+    (.close lts3)
+    (.close lts3)
+    (is (= 0 (count (.listFiles dir))))))
+
+(spill-tests)
+;;;;
+;;;; Eviction
+;;;;
+
+(deftest evict-tests
+  (let [spec (s/loop x [i 0]
+               (s/if (< i 1000)
+                 (s/cat (s/--> ::alice ::bob)
+                        (s/recur x (inc i)))))
+        lts (lts/lts spec :on-the-fly true)
+        cache-sizes (atom [])]
+    (is (= 1000 (loop [states (lts/state-set lts (lts/initial-states lts))
+                       i 0]
+                  (let [targets (lts/expand-then-perform! states :sync i "alice" "bob")]
+                    (if (or (= i 1000) (empty? targets))
+                      i
+                      (do (lts/evict! lts 16 (fn [] [targets]))
+                          (swap! cache-sizes conj (#'lts/expander-cache-size lts))
+                          (recur targets (inc i))))))))
+    (is (<= (count (.getStates lts)) 16))
+    (is (every? #(< (.getIdentifier ^discourje.core.lts.State %) 32) (.getStates lts)))
+    (is (<= (apply max @cache-sizes) 64))))
+
+(evict-tests)
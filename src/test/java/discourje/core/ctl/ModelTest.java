@@ -3,9 +3,15 @@ package discourje.core.ctl;
 import discourje.core.lts.Action;
 import discourje.core.lts.LTS;
 import discourje.core.lts.Transitions;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static discourje.core.ctl.Formulas.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -114,4 +120,168 @@ class ModelTest<Spec> {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that the successors and predecessors of a model agree, on this model (in which 0 has no predecessors, 2
+     * has a self-loop, and 3 has no successors):
+     * 0 --> 1 --> 3
+     * |     ^
+     * v     |
+     * 2 ----
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void createModel_shouldStoreAgreeingSuccessorsAndPredecessors() {
+        Action action = new Action("send", Action.Type.SEND, o -> true, "a", "b");
+        State<Spec>[] states = (State<Spec>[]) new State<?>[4];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new State<>(mock(discourje.core.lts.State.class), action, i);
+        }
+        states[0].addNextState(states[1]);
+        states[0].addNextState(states[2]);
+        states[1].addNextState(states[3]);
+        states[2].addNextState(states[1]);
+        states[2].addNextState(states[2]);
+
+        Model<Spec> model = new Model<>(states);
+
+        assertEquals(4, model.numberOfStates());
+        assertEquals(1, model.numberOfActions());
+        assertArrayEquals(new int[]{2, 1, 2, 0}, outDegrees(model));
+        assertArrayEquals(new int[]{0, 2, 2, 1}, inDegrees(model));
+        assertEquals(model.getForwardOffset(3), model.getForwardOffset(4));
+        assertTrue(model.getState(3).getNextStates().isEmpty());
+        assertTrue(model.getState(0).getPreviousStates().isEmpty());
+
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            for (int i = model.getForwardOffset(s); i < model.getForwardOffset(s + 1); i++) {
+                assertTrue(predecessors(model, model.getForwardTarget(i)).contains(s));
+            }
+            for (int i = model.getBackwardOffset(s); i < model.getBackwardOffset(s + 1); i++) {
+                assertTrue(successors(model, model.getBackwardSource(i)).contains(s));
+            }
+            assertEquals(states[s].getNextStates().size(), model.getState(s).getNextStates().size());
+            for (State<?> next : model.getState(s).getNextStates()) {
+                assertTrue(states[s].getNextStates().contains(next));
+            }
+        }
+    }
+
+    /**
+     * Test that labelling formulas with shared subformulas concurrently gives the same labels as labelling them one by
+     * one, and labels every shared subformula once, also while another thread labels it too.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void calculateLabels_shouldLabelSharedSubformulasOnce() throws Exception {
+        Action action = new Action("send", Action.Type.SEND, o -> true, "a", "b");
+        State<Spec>[] states1 = (State<Spec>[]) new State<?>[64];
+        State<Spec>[] states2 = (State<Spec>[]) new State<?>[64];
+        for (int i = 0; i < states1.length; i++) {
+            states1[i] = new State<>(mock(discourje.core.lts.State.class), action, i);
+            states2[i] = new State<>(mock(discourje.core.lts.State.class), action, i);
+        }
+        for (int i = 0; i < states1.length; i++) {
+            states1[i].addNextState(states1[(i + 1) % states1.length]);
+            states1[i].addNextState(states1[(3 * i) % states1.length]);
+            states2[i].addNextState(states2[(i + 1) % states2.length]);
+            states2[i].addNextState(states2[(3 * i) % states2.length]);
+        }
+        Model<Spec> model1 = new Model<>(states1);
+        Model<Spec> model2 = new Model<>(states2);
+
+        CountingFormula leaf = new CountingFormula();
+        Formula shared = EX(leaf);
+        List<Formula> formulas = Arrays.asList(
+                shared, AX(leaf), EF(shared), AG(leaf), and(shared, AX(shared)), EU(leaf, shared), AU(shared, leaf),
+                not(or(leaf, EF(shared))));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Thread thread = new Thread(() -> model1.calculateLabels(shared));
+            thread.start();
+            model1.calculateLabels(formulas, pool);
+            thread.join();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, leaf.count.get());
+
+        for (Formula formula : formulas) {
+            model2.calculateLabels(formula);
+        }
+        assertEquals(2, leaf.count.get());
+
+        for (Formula formula : formulas) {
+            for (int s = 0; s < model1.numberOfStates(); s++) {
+                assertEquals(model2.calculateLabels(formula).hasLabel(s), model1.calculateLabels(formula).hasLabel(s));
+            }
+        }
+        assertEquals(2, leaf.count.get());
+    }
+
+    /**
+     * Formula that holds in every even state, and counts how often it is labelled.
+     */
+    private static class CountingFormula implements Formula {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public boolean isTemporal() {
+            return false;
+        }
+
+        @Override
+        public Labels label(Model<?> model) {
+            count.incrementAndGet();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Labels labels = new Labels(model.numberOfStates());
+            for (int s = 0; s < model.numberOfStates(); s += 2) {
+                labels.setLabel(s);
+            }
+            return labels;
+        }
+
+        @Override
+        public List<List<Action>> extractWitness(Model<?> model, State<?> source) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static int[] outDegrees(Model<?> model) {
+        int[] result = new int[model.numberOfStates()];
+        for (int s = 0; s < result.length; s++) {
+            result[s] = model.outDegree(s);
+        }
+        return result;
+    }
+
+    private static int[] inDegrees(Model<?> model) {
+        int[] result = new int[model.numberOfStates()];
+        for (int t = 0; t < result.length; t++) {
+            result[t] = model.inDegree(t);
+        }
+        return result;
+    }
+
+    private static List<Integer> successors(Model<?> model, int s) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = model.getForwardOffset(s); i < model.getForwardOffset(s + 1); i++) {
+            result.add(model.getForwardTarget(i));
+        }
+        return result;
+    }
+
+    private static List<Integer> predecessors(Model<?> model, int t) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = model.getBackwardOffset(t); i < model.getBackwardOffset(t + 1); i++) {
+            result.add(model.getBackwardSource(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package discourje.core.ctl.formulas;
+
+import discourje.core.ctl.Formula;
+import discourje.core.ctl.Model;
+import discourje.core.ctl.State;
+import discourje.core.ctl.formulas.temporal.AS;
+import discourje.core.ctl.formulas.temporal.AU;
+import discourje.core.ctl.formulas.temporal.ES;
+import discourje.core.ctl.formulas.temporal.EU;
+import discourje.core.lts.Action;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import static discourje.core.ctl.Formulas.close;
+import static discourje.core.ctl.Formulas.send;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the labelling of AU, EU, AS and ES against the fixpoints as they were calculated before they were labelled in
+ * linear time (by a worklist of states, revisited until no label changes), on models with cycles, states without
+ * successors, and states without predecessors.
+ */
+class FixpointsTest<S> extends AbstractCtlFormulaTest<S> {
+
+    private static final Action.Type[] TYPES = {Action.Type.SEND, Action.Type.CLOSE, Action.Type.RECEIVE};
+
+    @Test
+    public void testCycleWithExitsAndEntries() {
+        State<S> s0 = createState(Action.Type.SEND, "a", "b");
+        State<S> s1 = createState(Action.Type.SEND, "a", "b");
+        State<S> s2 = createState(Action.Type.SEND, "a", "b");
+        State<S> s3 = createState(Action.Type.CLOSE, "a", "b");
+        State<S> s4 = createState(Action.Type.SEND, "a", "b");
+        State<S> s5 = createState(Action.Type.RECEIVE, "a", "b");
+
+        s0.addNextState(s1);
+        s1.addNextState(s2);
+        s2.addNextState(s1);
+        s2.addNextState(s3);
+        s2.addNextState(s4);
+        s3.addNextState(s3);
+        s5.addNextState(s1);
+
+        assertAsBefore(createModel(s0, s1, s2, s3, s4, s5));
+    }
+
+    @Test
+    public void testSelfLoops() {
+        State<S> s0 = createState(Action.Type.SEND, "a", "b");
+        State<S> s1 = createState(Action.Type.CLOSE, "a", "b");
+        State<S> s2 = createState(Action.Type.SEND, "a", "b");
+
+        s0.addNextState(s0);
+        s0.addNextState(s1);
+        s2.addNextState(s2);
+
+        assertAsBefore(createModel(s0, s1, s2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRandomModels() {
+        for (long seed = 0; seed < 32; seed++) {
+            Random random = new Random(seed);
+            int n = 2 + random.nextInt(40);
+            State<S>[] states = (State<S>[]) new State<?>[n];
+            for (int s = 0; s < n; s++) {
+                Action action = new Action("name", TYPES[random.nextInt(TYPES.length)], null, "a", "b");
+                states[s] = new State<>(mock(discourje.core.lts.State.class), action, s);
+            }
+            // state 0 has no predecessors, and state n - 1 has no successors
+            for (int s = 0; s < n - 1; s++) {
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    states[s].addNextState(states[1 + random.nextInt(n - 1)]);
+                }
+            }
+            assertAsBefore(createModel(states));
+        }
+    }
+
+    private void assertAsBefore(Model<S> model) {
+        Formula lhs = send("a", null);
+        Formula rhs = close("a", "b");
+        assertAsBefore(model, new AU(lhs, rhs), lhs, rhs, State::getNextStates, State::getPreviousStates, true);
+        assertAsBefore(model, new EU(lhs, rhs), lhs, rhs, State::getNextStates, State::getPreviousStates, false);
+        assertAsBefore(model, new AS(lhs, rhs), lhs, rhs, State::getPreviousStates, State::getNextStates, true);
+        assertAsBefore(model, new ES(lhs, rhs), lhs, rhs, State::getPreviousStates, State::getNextStates, false);
+    }
+
+    private static void assertAsBefore(Model<?> model, Formula formula, Formula lhs, Formula rhs,
+                                       Function<State<?>, Collection<State<?>>> successors,
+                                       Function<State<?>, Collection<State<?>>> predecessors, boolean all) {
+        Set<State<?>> labels = new HashSet<>();
+        Queue<State<?>> states = new LinkedList<>(model.getStates());
+        while (!states.isEmpty()) {
+            State<?> state = states.remove();
+            Collection<State<?>> next = successors.apply(state);
+            if (model.hasLabel(state, rhs) || (model.hasLabel(state, lhs) && !next.isEmpty() &&
+                    (all ? labels.containsAll(next) : next.stream().anyMatch(labels::contains)))) {
+                if (labels.add(state)) {
+                    states.addAll(predecessors.apply(state));
+                }
+            }
+        }
+
+        for (State<?> state : model.getStates()) {
+            assertEquals(labels.contains(state), model.hasLabel(state, formula), formula + " at " + state.getIndex());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package discourje.core.ctl.formulas;
+
+import discourje.core.ctl.Formula;
+import discourje.core.ctl.Labels;
+import discourje.core.ctl.Model;
+import discourje.core.ctl.State;
+import discourje.core.ctl.formulas.atomic.Close;
+import discourje.core.ctl.formulas.atomic.Send;
+import discourje.core.lts.Action;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class PropositionalTest<S> extends AbstractCtlFormulaTest<S> {
+
+    @Test
+    public void testTailWordIsMasked() {
+        for (int n : new int[]{1, 63, 64, 65, 70, 128, 130}) {
+            Model<S> model = createModel(n);
+
+            assertWords(n, model.calculateLabels(new Not(new Close("a", "b"))));
+            assertWords(n, model.calculateLabels(new Not(new Not(new Send("a", null)))));
+            assertWords(n, model.calculateLabels(new Implies(new Close("a", "b"), new Send("b", null))));
+            assertWords(n, model.calculateLabels(new And()));
+            assertFalse(model.calculateLabels(new Not(new Close("a", "b"))).hasLabel(n));
+        }
+    }
+
+    @Test
+    public void testNestedNotAndImplies() {
+        Model<S> model = createModel(70);
+        Formula send = new Send("a", null);
+        Formula close = new Close("a", "b");
+
+        Formula formula = new Not(new Implies(new Not(send), new Implies(close, new Not(new Not(send)))));
+        Labels labels = model.calculateLabels(formula);
+        for (int s = 0; s < 70; s++) {
+            boolean isSend = model.hasLabel(model.getState(s), send);
+            boolean isClose = model.hasLabel(model.getState(s), close);
+            assertEquals(!(isSend || (!isClose || isSend)), labels.hasLabel(s), "state " + s);
+        }
+
+        formula = new Implies(new Not(send), new Not(new Implies(send, close)));
+        labels = model.calculateLabels(formula);
+        for (int s = 0; s < 70; s++) {
+            boolean isSend = model.hasLabel(model.getState(s), send);
+            boolean isClose = model.hasLabel(model.getState(s), close);
+            assertEquals(isSend || (isSend && !isClose), labels.hasLabel(s), "state " + s);
+        }
+    }
+
+    @Test
+    public void testEmptyAndOr() {
+        Model<S> model = createModel(70);
+
+        Labels and = model.calculateLabels(new And());
+        Labels or = model.calculateLabels(new Or());
+        for (int s = 0; s < 70; s++) {
+            assertTrue(and.hasLabel(s));
+            assertFalse(or.hasLabel(s));
+        }
+        assertWords(70, and);
+        assertEquals(0, or.getWord(0) | or.getWord(1));
+
+        Labels notOr = model.calculateLabels(new Not(new Or()));
+        Labels notAnd = model.calculateLabels(new Not(new And()));
+        for (int s = 0; s < 70; s++) {
+            assertTrue(notOr.hasLabel(s));
+            assertFalse(notAnd.hasLabel(s));
+        }
+        assertWords(70, notOr);
+    }
+
+    /**
+     * Creates a model of n states, in which every third state is a close, and the others are sends.
+     */
+    @SuppressWarnings("unchecked")
+    private Model<S> createModel(int n) {
+        State<S>[] states = (State<S>[]) new State<?>[n];
+        for (int s = 0; s < n; s++) {
+            Action action = new Action("name", s % 3 == 0 ? Action.Type.CLOSE : Action.Type.SEND, null, "a", "b");
+            states[s] = new State<>(mock(discourje.core.lts.State.class), action, s);
+        }
+        return createModel(states);
+    }
+
+    /**
+     * Asserts that no bit beyond state n - 1 is set.
+     */
+    private static void assertWords(int n, Labels labels) {
+        if (n % 64 != 0) {
+            assertEquals(0, labels.getWord(n >>> 6) >>> (n & 63));
+        }
+        for (int i = (n + 63) >>> 6; i < ((n + 63) >>> 6) + 2; i++) {
+            assertEquals(0, labels.getWord(i));
+        }
+    }
+}
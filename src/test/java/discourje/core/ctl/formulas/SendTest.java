@@ -1,6 +1,7 @@
 package discourje.core.ctl.formulas;
 
 import discourje.core.lts.Action;
+import discourje.core.lts.ActionTable;
 import discourje.core.ctl.State;
 import discourje.core.ctl.Model;
 import discourje.core.ctl.formulas.atomic.Send;
@@ -34,4 +35,23 @@ class SendTest<S> extends AbstractCtlFormulaTest<S> {
         assertFalse(model.hasLabel(s7, snd));
         assertFalse(model.hasLabel(s8, snd));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSendInterned() {
+        ActionTable table = new ActionTable();
+        Action send_ab = table.intern(new Action("!(a,b)", Action.Type.SEND, null, "a", "b"));
+        Action send_ba = table.intern(new Action("!(b,a)", Action.Type.SEND, null, "b", "a"));
+        State<S> s1 = createState(send_ab);
+        State<S> s2 = createState(send_ba);
+        State<S> s3 = createState(table.intern(new Action("!(a,b)", Action.Type.SEND, null, "a", "b")));
+        Model<S> model = createModel(s1, s2, s3);
+
+        Send snd = new Send("a", null);
+        model.calculateLabels(snd);
+
+        assertTrue(model.hasLabel(s1, snd));
+        assertFalse(model.hasLabel(s2, snd));
+        assertTrue(model.hasLabel(s3, snd));
+        assertTrue(s3.getAction() == send_ab);
+    }
+}
@@ -0,0 +1,148 @@
+package discourje.core.ctl.formulas.temporal;
+
+import discourje.core.ctl.Formula;
+import discourje.core.ctl.Labels;
+import discourje.core.ctl.Model;
+import discourje.core.ctl.State;
+import discourje.core.lts.Action;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the parallel fixpoints against the sequential ones of {@link EU} and {@link AU}, which are used for models
+ * below the threshold, on random models of several chunks (with cycles, and states without successors or
+ * predecessors).
+ */
+class ParallelFixpointsTest<S> {
+
+    private static final int SIZE = 20000;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testApplicableOnlyOnLargeModelsAndParallelPools() {
+        Model<S> model = mock(Model.class);
+        when(model.numberOfStates()).thenReturn(1 << 16);
+        assertTrue(ParallelFixpoints.isApplicable(model, pool));
+        assertFalse(ParallelFixpoints.isApplicable(createModel(16, 0), pool));
+
+        ForkJoinPool sequential = new ForkJoinPool(1);
+        try {
+            assertFalse(ParallelFixpoints.isApplicable(model, sequential));
+        } finally {
+            sequential.shutdown();
+        }
+    }
+
+    @Test
+    public void testExistsUntilAsSequential() {
+        for (long seed = 0; seed < 4; seed++) {
+            Model<S> model = createModel(SIZE, seed);
+            Labels lhsLabels = createLabels(model, seed, 2);
+            Labels rhsLabels = createLabels(model, seed + 1, 64);
+            Labels expected = new EU(new Fixed(lhsLabels), new Fixed(rhsLabels)).label(model);
+
+            assertLabels(model, expected, ParallelFixpoints.existsUntil(model, pool, lhsLabels, rhsLabels));
+            assertLabels(model, expected, pool.invoke(ForkJoinTask.adapt(() ->
+                    ParallelFixpoints.existsUntil(model, pool, lhsLabels, rhsLabels))));
+        }
+    }
+
+    @Test
+    public void testAllUntilAsSequential() {
+        for (long seed = 0; seed < 4; seed++) {
+            Model<S> model = createModel(SIZE, seed);
+            Labels lhsLabels = createLabels(model, seed, 2);
+            Labels rhsLabels = createLabels(model, seed + 1, 4);
+            Labels expected = new AU(new Fixed(lhsLabels), new Fixed(rhsLabels)).label(model);
+
+            assertLabels(model, expected, ParallelFixpoints.allUntil(model, pool, lhsLabels, rhsLabels));
+            assertLabels(model, expected, pool.invoke(ForkJoinTask.adapt(() ->
+                    ParallelFixpoints.allUntil(model, pool, lhsLabels, rhsLabels))));
+        }
+    }
+
+    /**
+     * Creates a model of n states, each of which has up to 3 random successors.
+     */
+    @SuppressWarnings("unchecked")
+    private Model<S> createModel(int n, long seed) {
+        Random random = new Random(seed);
+        discourje.core.lts.State<S> ltsState = mock(discourje.core.lts.State.class);
+        State<S>[] states = (State<S>[]) new State<?>[n];
+        for (int s = 0; s < n; s++) {
+            states[s] = new State<>(ltsState, new Action("name" + s, Action.Type.SEND, null, "a", "b"), s);
+        }
+        for (int s = 0; s < n; s++) {
+            for (int i = random.nextInt(4); i > 0; i--) {
+                states[s].addNextState(states[random.nextInt(n)]);
+            }
+        }
+        return new Model<>(states);
+    }
+
+    private static Labels createLabels(Model<?> model, long seed, int bound) {
+        Random random = new Random(seed);
+        Labels labels = new Labels(model.numberOfStates());
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            if (random.nextInt(bound) == 0) {
+                labels.setLabel(s);
+            }
+        }
+        return labels;
+    }
+
+    private static void assertLabels(Model<?> model, Labels expected, Labels actual) {
+        for (int s = 0; s < model.numberOfStates(); s++) {
+            assertEquals(expected.hasLabel(s), actual.hasLabel(s), "state " + s);
+        }
+    }
+
+    /**
+     * Formula with fixed labels.
+     */
+    private static class Fixed implements Formula {
+
+        private final Labels labels;
+
+        private Fixed(Labels labels) {
+            this.labels = labels;
+        }
+
+        @Override
+        public boolean isTemporal() {
+            return false;
+        }
+
+        @Override
+        public Labels label(Model<?> model) {
+            return labels;
+        }
+
+        @Override
+        public List<List<Action>> extractWitness(Model<?> model, State<?> source) {
+            return Collections.emptyList();
+        }
+    }
+}
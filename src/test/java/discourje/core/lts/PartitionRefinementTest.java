@@ -0,0 +1,83 @@
+package discourje.core.lts;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that partition refinement computes the coarsest bisimulation, and that the cost of a round depends only on
+ * the states that are dirty in that round (so a long chain, which needs a round per state, is refined in linear time).
+ */
+class PartitionRefinementTest {
+
+    private static final int N = 200_000;
+
+    /**
+     * Returns a chain 0 -a-> 1 -a-> ... -a-> n - 1, in which no two states are bisimilar.
+     */
+    private static PartitionRefinement chain(int n) {
+        var forwardOffsets = new int[n + 1];
+        var forwardActions = new int[n - 1];
+        var forwardTargets = new int[n - 1];
+        for (int s = 0; s < n - 1; s++) {
+            forwardOffsets[s + 1] = s + 1;
+            forwardTargets[s] = s + 1;
+        }
+        forwardOffsets[n] = n - 1;
+        return new PartitionRefinement(forwardOffsets, forwardActions, forwardTargets);
+    }
+
+    /**
+     * Returns a cycle 0 -a-> 1 -a-> ... -a-> n - 1 -a-> 0, in which all states are bisimilar.
+     */
+    private static PartitionRefinement cycle(int n) {
+        var forwardOffsets = new int[n + 1];
+        var forwardActions = new int[n];
+        var forwardTargets = new int[n];
+        for (int s = 0; s < n; s++) {
+            forwardOffsets[s + 1] = s + 1;
+            forwardTargets[s] = (s + 1) % n;
+        }
+        return new PartitionRefinement(forwardOffsets, forwardActions, forwardTargets);
+    }
+
+    @Test
+    public void refine_shouldSplitChainInLinearTime() {
+        var refinement = chain(N);
+        var block = refinement.refine(null);
+
+        assertEquals(N, refinement.getNumberOfBlocks());
+        for (int s = 1; s < N; s++) {
+            assertTrue(block[s] != block[s - 1]);
+        }
+
+        // A round per state, but after the first round, only the predecessor of the last split state is dirty
+        assertEquals(N, refinement.getNumberOfRounds());
+        assertEquals(2L * N - 1, refinement.getDirtyCount());
+    }
+
+    @Test
+    public void refine_shouldSplitChainInParallel() {
+        var pool = new ForkJoinPool(4);
+        try {
+            var refinement = chain(1_000);
+            refinement.refine(pool);
+            assertEquals(1_000, refinement.getNumberOfBlocks());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void refine_shouldKeepCycleInOneBlock() {
+        var refinement = cycle(N);
+        var block = refinement.refine(null);
+
+        assertEquals(1, refinement.getNumberOfBlocks());
+        assertEquals(1, refinement.getNumberOfRounds());
+        for (int s = 0; s < N; s++) {
+            assertEquals(0, block[s]);
+        }
+    }
+}
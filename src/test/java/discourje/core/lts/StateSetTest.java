@@ -0,0 +1,43 @@
+package discourje.core.lts;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the memo of state sets of an LTS stays bounded on a long run, and that recently visited state sets stay
+ * canonical.
+ */
+class StateSetTest {
+
+    private static final Action A = new Action("a", Action.Type.SYNC, message -> true, "a", "b");
+
+    /**
+     * Returns the LTS of a counter that never stops: 0 -a-> 1 -a-> 2 -a-> ...
+     */
+    private static LTS<Integer> counter() {
+        return new LTS<>(List.of(0), i -> Map.<Action, Collection<Integer>>of(A, List.of(i + 1)));
+    }
+
+    @Test
+    public void getStateSet_shouldStayBounded() {
+        var lts = counter();
+        var n = LTS.STATE_SETS_CAPACITY + 1_000;
+
+        var initial = lts.getStateSet(lts.getInitialStates());
+        var current = initial;
+        for (int i = 0; i < n; i++) {
+            current = current.expandThenPerform(Action.Type.SYNC, i, "a", "b");
+            assertTrue(lts.numberOfStateSets() <= LTS.STATE_SETS_CAPACITY);
+        }
+
+        assertEquals(n, (int) current.iterator().next().getSpec());
+        assertSame(current, lts.getStateSet(List.copyOf(current)));
+        assertNotSame(initial, lts.getStateSet(lts.getInitialStates()));
+    }
+}